@@ -42,10 +42,13 @@ public class Device {
 
   /**
    * Retorna o valor mais atual dos sensores do dispositivo.
+   *
+   * @param timeoutMillis int - Tempo máximo (em milissegundos) de cada
+   * consulta.
    */
-  public void getLastValueSensors() {
+  public void getLastValueSensors(int timeoutMillis) {
     for (Sensor s : this.sensors) {
-      s.getValue(this.id);
+      s.getValue(this.id, timeoutMillis);
     }
   }
 
@@ -2,7 +2,6 @@ package br.uefs.larsid.dlt.iot.soft.entity;
 
 import br.uefs.larsid.dlt.iot.soft.model.ClientIotService;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import org.json.JSONObject;
 
 public class Sensor {
 
@@ -20,20 +19,14 @@ public class Sensor {
   public Sensor() {}
 
   /**
-   * Atualiza o valor do sensor.
+   * Atualiza o valor do sensor, mantendo o valor atual caso a API falhe.
    *
    * @param idDevice String - Id do dispositivo.
+   * @param timeoutMillis int - Tempo máximo (em milissegundos) da consulta.
    */
-  public void getValue(String idDevice) {
-    String url = String.format("%s/%s/%s", urlAPI, idDevice, this.id);
-    String response = ClientIotService.getApiIot(url);
-
-    if (response != null) {
-      JSONObject json = new JSONObject(response);
-      this.value = Integer.valueOf(json.getString("value"));
-    } else {
-      this.value = 0;
-    }
+  public void getValue(String idDevice, int timeoutMillis) {
+    this.value =
+      ClientIotService.getSensorValue(urlAPI, idDevice, this.id, timeoutMillis);
   }
 
   public String getId() {
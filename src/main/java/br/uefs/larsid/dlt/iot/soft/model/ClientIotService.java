@@ -1,53 +1,110 @@
 package br.uefs.larsid.dlt.iot.soft.model;
 
-import java.io.BufferedReader;
+import br.uefs.larsid.dlt.iot.soft.entity.Device;
+import br.uefs.larsid.dlt.iot.soft.utils.JsonCodec;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.List;
 
 public class ClientIotService {
 
   private static int HTTP_SUCCESS = 200;
 
+  /* ObjectReader é thread-safe após configurado. */
+  private static final ObjectReader DEVICES_READER = JsonCodec.readerFor(
+    new TypeReference<List<Device>>() {}
+  );
+
   /**
-   * Solicita os dispositivos que estão conectados através da API.
+   * Converte a lista de dispositivos à medida que ela é lida, sem armazená-la
+   * em uma String.
    *
-   * @param urlAPI String - Url da API.
-   * @return String
+   * @param stream InputStream - Corpo da resposta da API.
+   * @return List<Device>
+   * @throws IOException - Caso a resposta não possa ser lida ou convertida.
    */
-  public static String getApiIot(String urlAPI) {
-    try {
-      URL url = new URL(urlAPI);
-      HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-      if (conn.getResponseCode() != HTTP_SUCCESS) {
-        throw new RuntimeException(
-          "HTTP error code : " + conn.getResponseCode()
-        );
-      }
-
-      BufferedReader br = new BufferedReader(
-        new InputStreamReader((conn.getInputStream()))
-      );
+  static List<Device> readDevices(InputStream stream) throws IOException {
+    return DEVICES_READER.readValue(stream);
+  }
 
-      String temp = null;
-      String devicesJson = null;
+  /**
+   * Abre uma conexão com a API, sem enviar a requisição, limitando o tempo
+   * de conexão e o tempo de espera de cada leitura.
+   *
+   * @param urlAPI String - Url da API.
+   * @param timeoutMillis int - Tempo máximo (em milissegundos) da conexão e
+   * de cada leitura. Zero espera indefinidamente.
+   * @return HttpURLConnection
+   * @throws IOException - Caso a conexão falhe.
+   */
+  static HttpURLConnection openConnection(String urlAPI, int timeoutMillis)
+    throws IOException {
+    HttpURLConnection conn = (HttpURLConnection) new URL(urlAPI)
+      .openConnection();
 
-      while ((temp = br.readLine()) != null) {
-        devicesJson = temp;
-      }
+    conn.setConnectTimeout(timeoutMillis);
+    conn.setReadTimeout(timeoutMillis);
 
-      conn.disconnect();
+    return conn;
+  }
 
-      return devicesJson;
-    } catch (MalformedURLException e) {
-      e.printStackTrace();
-    } catch (IOException e) {
-      e.printStackTrace();
+  /**
+   * Abre o corpo da resposta de uma conexão com a API.
+   *
+   * @param conn HttpURLConnection - Conexão com a API.
+   * @return InputStream
+   * @throws IOException - Caso a conexão falhe.
+   */
+  static InputStream openStream(HttpURLConnection conn) throws IOException {
+    if (conn.getResponseCode() != HTTP_SUCCESS) {
+      throw new RuntimeException("HTTP error code : " + conn.getResponseCode());
     }
 
-    return null;
+    return conn.getInputStream();
+  }
+
+  /**
+   * Solicita o valor mais atual de um sensor de um dispositivo através da
+   * API.
+   *
+   * @param urlAPI String - Url da API.
+   * @param deviceId String - Id do dispositivo.
+   * @param sensorId String - Id do sensor.
+   * @param timeoutMillis int - Tempo máximo (em milissegundos) da conexão e
+   * de cada leitura.
+   * @return int - Valor do sensor.
+   * @throws IllegalStateException - Caso a API falhe, não responda a tempo
+   * ou retorne um valor inválido.
+   */
+  public static int getSensorValue(
+    String urlAPI,
+    String deviceId,
+    String sensorId,
+    int timeoutMillis
+  ) {
+    String url = String.format("%s/%s/%s", urlAPI, deviceId, sensorId);
+
+    try (
+      InputStream stream = openStream(openConnection(url, timeoutMillis))
+    ) {
+      JsonNode json = JsonCodec.readTree(stream);
+
+      return Integer.parseInt(json.get("value").asText());
+    } catch (IOException | RuntimeException e) {
+      throw new IllegalStateException(
+        String.format(
+          "Could not read sensor %s of device %s: %s",
+          sensorId,
+          deviceId,
+          e
+        ),
+        e
+      );
+    }
   }
 }
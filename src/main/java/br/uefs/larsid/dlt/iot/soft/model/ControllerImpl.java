@@ -5,23 +5,27 @@ import br.uefs.larsid.dlt.iot.soft.entity.Sensor;
 import br.uefs.larsid.dlt.iot.soft.mqtt.ListenerConnection;
 import br.uefs.larsid.dlt.iot.soft.mqtt.ListenerRequest;
 import br.uefs.larsid.dlt.iot.soft.mqtt.ListenerResponse;
+import br.uefs.larsid.dlt.iot.soft.mqtt.ListenerSensorData;
 import br.uefs.larsid.dlt.iot.soft.mqtt.MQTTClient;
+import br.uefs.larsid.dlt.iot.soft.mqtt.MQTTClientPool;
 import br.uefs.larsid.dlt.iot.soft.services.Controller;
-import br.uefs.larsid.dlt.iot.soft.utils.MapToArray;
+import br.uefs.larsid.dlt.iot.soft.utils.BinaryCodec;
+import br.uefs.larsid.dlt.iot.soft.utils.JsonCodec;
+import br.uefs.larsid.dlt.iot.soft.utils.RequestDeadline;
+import br.uefs.larsid.dlt.iot.soft.utils.ScoreMap;
 import br.uefs.larsid.dlt.iot.soft.utils.SortTopK;
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import java.io.IOException;
+import br.uefs.larsid.dlt.iot.soft.utils.TopKHeap;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class ControllerImpl implements Controller {
 
@@ -38,20 +42,68 @@ public class ControllerImpl implements Controller {
   private static final String INVALID_TOP_K = "INVALID_TOP_K/#";
   private static final String INVALID_TOP_K_FOG = "INVALID_TOP_K_FOG/";
   private static final String CONNECT = "SYN";
+  private static final String CONNECT_CODECS = "SYN_CODECS";
   private static final String DISCONNECT = "FIN";
+  private static final String CODEC_BINARY = "binary";
+  private static final String INGESTION_PUSH = "push";
   /*--------------------------------------------------------------------------*/
 
   private boolean debugModeValue;
   private boolean hasNodes;
   private MQTTClient MQTTClientUp;
   private MQTTClient MQTTClientHost;
+  private MQTTClientPool MQTTClientsDown;
   private String urlAPI;
-  private Map<String, Map<String, Integer>> topKScores = new LinkedHashMap<String, Map<String, Integer>>();
-  private List<Device> devices;
-  private Map<String, Integer> responseQueue = new LinkedHashMap<String, Integer>();
+  private volatile List<Device> devices;
   private List<String> nodesUris;
   private int timeoutInSeconds;
-  private JsonObject sensorsTypesJSON = new JsonObject();
+  private ObjectNode sensorsTypesJSON = JsonCodec.objectNode();
+  private int requestWorkers;
+  private int requestQueueSize;
+  private String requestQueuePolicy;
+  private RequestExecutor requestExecutor;
+  private int fanOutParallelism;
+  private int httpParallelism;
+  private int sensorBatchSize;
+  private SensorValueLoader sensorValueLoader;
+  private int sensorCacheMaxEntries;
+  private long sensorCacheMaxStalenessMillis;
+  private long sensorCacheRefreshMillis;
+  private SensorValueCache sensorValueCache;
+  private String ingestionMode;
+  private String ingestionTopic;
+  private SensorValueTable sensorValueTable = new SensorValueTable();
+  private int indexMaxFunctions;
+  private int indexTtlSeconds;
+  private TopKIndex topKIndex;
+  private int scoringParallelism;
+  private int scoringParallelThreshold;
+  private ParallelScorer parallelScorer;
+  private long registryRefreshMillis;
+  private DeviceRegistry deviceRegistry;
+  private String wireCodec;
+  private Set<String> binaryNodes = ConcurrentHashMap.newKeySet();
+  private long devicesVersion = -1;
+  private int maxInFlightRequests;
+  private int requestTtlSeconds;
+  private RequestTable requestTable;
+  private boolean queryCoalescing;
+  private QueryCoalescer queryCoalescer = new QueryCoalescer();
+  private int resultCacheMaxEntries;
+  private long resultCacheMaxAgeMillis;
+  private TopKResultCache topKResultCache;
+  private double adaptiveDeadlinePercentile;
+  private long adaptiveDeadlineMarginMillis;
+  private LatencyTracker latencyTracker;
+  private String nodeUri;
+  private double quorumFraction;
+  private long quorumBudgetMillis;
+  private QuorumPolicy defaultQuorumPolicy;
+  private long minRefreshBudgetMillis;
+  private volatile DeviceColumnStore deviceColumnStore = DeviceColumnStore.build(
+    new ArrayList<Device>(),
+    null
+  );
 
   public ControllerImpl() {}
 
@@ -62,17 +114,114 @@ public class ControllerImpl implements Controller {
     this.MQTTClientUp.connect();
     this.MQTTClientHost.connect();
 
+    /* A compressão só é usada caso o nó de cima anuncie o codec. */
+    this.MQTTClientUp.listenCompressionCodecs();
+
+    this.deviceRegistry =
+      new DeviceRegistry(
+        this.urlAPI,
+        this.registryRefreshMillis,
+        this.timeoutInSeconds * 1000,
+        debugModeValue
+      );
+
+    this.latencyTracker =
+      new LatencyTracker(
+        this.adaptiveDeadlinePercentile,
+        this.adaptiveDeadlineMarginMillis
+      );
+
+    this.defaultQuorumPolicy =
+      new QuorumPolicy(this.quorumFraction, this.quorumBudgetMillis);
+
+    /*
+     * As requisições em andamento são descartadas somente após o tempo de
+     * espera das respostas dos nós filhos.
+     */
+    this.requestTable =
+      new RequestTable(
+        this.maxInFlightRequests,
+        Math.max(this.requestTtlSeconds, 2 * this.timeoutInSeconds) * 1000L,
+        debugModeValue
+      );
+
+    this.requestExecutor =
+      new RequestExecutor(
+        "fog-broker-request",
+        this.requestWorkers,
+        this.requestQueueSize,
+        RequestExecutor.QueuePolicy.fromString(this.requestQueuePolicy),
+        debugModeValue
+      );
+
+    this.sensorValueCache =
+      new SensorValueCache(
+        this.sensorCacheMaxEntries,
+        this.sensorCacheMaxStalenessMillis,
+        this.sensorCacheRefreshMillis,
+        this.timeoutInSeconds * 1000,
+        debugModeValue
+      );
+    this.sensorValueCache.start();
+
+    this.topKIndex =
+      new TopKIndex(this.indexMaxFunctions, this.indexTtlSeconds * 1000L);
+    this.topKResultCache =
+      new TopKResultCache(
+        this.resultCacheMaxEntries,
+        this.resultCacheMaxAgeMillis
+      );
+    this.sensorValueCache.setListener(this::sensorValueChanged);
+    this.sensorValueTable.setListener(this::sensorValueChanged);
+
+    this.sensorValueLoader =
+      new SensorValueLoader(
+        this.httpParallelism,
+        this.sensorBatchSize,
+        this.sensorValueCache,
+        this.timeoutInSeconds * 1000,
+        debugModeValue
+      );
+    this.sensorValueLoader.setListener(this::sensorValueLoaded);
+
+    this.parallelScorer =
+      new ParallelScorer(
+        this.scoringParallelism,
+        this.scoringParallelThreshold
+      );
+
+    if (this.isPushIngestion()) {
+      String[] topicsSensorData = { this.ingestionTopic };
+
+      new ListenerSensorData(
+        this.sensorValueTable,
+        MQTTClientHost,
+        topicsSensorData,
+        QOS,
+        debugModeValue
+      );
+    }
+
     if (hasNodes) {
-      nodesUris = new ArrayList<>();
+      nodesUris = new CopyOnWriteArrayList<>();
+      MQTTClientsDown =
+        new MQTTClientPool(
+          this.MQTTClientUp.getUserName(),
+          this.MQTTClientUp.getPassword(),
+          this.fanOutParallelism,
+          debugModeValue
+        );
       String[] topicsRequest = { TOP_K_FOG, SENSORS_FOG };
-      String[] topicsConnection = { CONNECT, DISCONNECT };
+      String[] topicsConnection = { CONNECT, CONNECT_CODECS, DISCONNECT };
       String[] topicsResponse = { TOP_K_RES, INVALID_TOP_K, SENSORS_RES };
 
       new ListenerRequest(
         this,
         MQTTClientUp,
         MQTTClientHost,
+        this.MQTTClientsDown,
         this.nodesUris,
+        this.requestExecutor,
         topicsRequest,
         QOS,
         debugModeValue
@@ -91,24 +240,37 @@ public class ControllerImpl implements Controller {
         QOS,
         debugModeValue
       );
+
+      this.MQTTClientHost.advertiseCompressionCodecs();
     } else {
       String[] topics = { TOP_K, SENSORS };
 
+      this.nodeUri =
+        String.format("%s:%s", MQTTClientHost.getIp(), MQTTClientHost.getPort());
+
       new ListenerRequest(
         this,
         MQTTClientUp,
         MQTTClientHost,
+        this.MQTTClientsDown,
         this.nodesUris,
+        this.requestExecutor,
         topics,
         QOS,
         debugModeValue
       );
 
-      byte[] payload = String
-        .format("%s:%s", MQTTClientHost.getIp(), MQTTClientHost.getPort())
-        .getBytes();
+      this.MQTTClientUp.publish(CONNECT, this.nodeUri.getBytes(), QOS);
+
+      /*
+       * Anunciando ao nó pai os codecs aceitos por este nó em um tópico à
+       * parte, ignorado pelos nós pais que não conhecem o codec binário.
+       */
+      if (this.isBinaryWire()) {
+        String codecs = this.nodeUri + ";codecs=" + BinaryCodec.NAME;
 
-      this.MQTTClientUp.publish(CONNECT, payload, QOS);
+        this.MQTTClientUp.publish(CONNECT_CODECS, codecs.getBytes(), QOS);
+      }
     }
   }
 
@@ -129,12 +291,25 @@ public class ControllerImpl implements Controller {
       this.MQTTClientUp.unsubscribe(TOP_K_FOG);
       this.MQTTClientUp.unsubscribe(SENSORS_FOG);
       this.MQTTClientUp.unsubscribe(CONNECT);
+      this.MQTTClientUp.unsubscribe(CONNECT_CODECS);
       this.MQTTClientUp.unsubscribe(DISCONNECT);
       this.MQTTClientHost.unsubscribe(TOP_K_RES);
       this.MQTTClientHost.unsubscribe(INVALID_TOP_K);
       this.MQTTClientHost.unsubscribe(SENSORS_RES);
+      this.MQTTClientHost.clearCompressionCodecs();
+
+      this.MQTTClientsDown.closeAll();
+    }
+
+    if (this.isPushIngestion()) {
+      this.MQTTClientHost.unsubscribe(this.ingestionTopic);
     }
 
+    this.requestExecutor.shutdown();
+    this.sensorValueLoader.shutdown();
+    this.parallelScorer.shutdown();
+    this.sensorValueCache.stop();
+
     this.MQTTClientHost.disconnect();
     this.MQTTClientUp.disconnect();
   }
@@ -144,56 +319,61 @@ public class ControllerImpl implements Controller {
    */
   @Override
   public void loadConnectedDevices() {
-    this.loadConnectedDevices(ClientIotService.getApiIot(this.urlAPI));
+    this.loadConnectedDevices(RequestDeadline.NONE);
   }
 
   /**
-   * Adiciona os dispositivos que foram requisitados na lista de dispositivos.
+   * Adiciona os dispositivos que foram requisitados na lista de dispositivos,
+   * sem consultar a API caso o prazo da requisição esteja próximo.
    *
-   * @param strDevices String - Dispositivos requisitados.
+   * @param deadline long - Instante limite da requisição.
    */
-  private void loadConnectedDevices(String strDevices) {
-    List<Device> devicesTemp = new ArrayList<Device>();
-
-    try {
-      printlnDebug("JSON load:");
-      printlnDebug(strDevices);
-
-      JSONArray jsonArrayDevices = new JSONArray(strDevices);
-
-      for (int i = 0; i < jsonArrayDevices.length(); i++) {
-        JSONObject jsonDevice = jsonArrayDevices.getJSONObject(i);
-        ObjectMapper mapper = new ObjectMapper();
-        Device device = mapper.readValue(jsonDevice.toString(), Device.class);
+  @Override
+  public void loadConnectedDevices(long deadline) {
+    /* Com pouco tempo restante, a lista atual é mantida. */
+    if (
+      !this.deviceRegistry.isLoaded() ||
+      RequestDeadline.allowsRefresh(deadline, this.minRefreshBudgetMillis)
+    ) {
+      this.deviceRegistry.refresh();
+    } else {
+      printlnDebug("Deadline near, skipping the devices refresh.");
+    }
 
-        devicesTemp.add(device);
+    /* A lista só é reprocessada quando muda. */
+    synchronized (this.deviceRegistry) {
+      if (this.deviceRegistry.getVersion() == this.devicesVersion) {
+        return;
+      }
 
-        List<Sensor> tempSensors = new ArrayList<Sensor>();
-        JSONArray jsonArraySensors = jsonDevice.getJSONArray("sensors");
+      this.devicesVersion = this.deviceRegistry.getVersion();
+      this.updateDevices(this.deviceRegistry.getDevices());
+    }
+  }
 
-        for (int j = 0; j < jsonArraySensors.length(); j++) {
-          JSONObject jsonSensor = jsonArraySensors.getJSONObject(j);
-          Sensor sensor = mapper.readValue(jsonSensor.toString(), Sensor.class);
-          sensor.setUrlAPI(urlAPI);
-          tempSensors.add(sensor);
-        }
+  /**
+   * Substitui a lista de dispositivos conectados e os valores dos seus
+   * sensores.
+   *
+   * @param devicesTemp List<Device> - Dispositivos conectados.
+   */
+  private void updateDevices(List<Device> devicesTemp) {
+    DeviceColumnStore deviceColumnStoreTemp = DeviceColumnStore.build(
+      devicesTemp,
+      this.deviceColumnStore
+    );
 
-        device.setSensors(tempSensors);
-      }
-    } catch (JsonParseException e) {
-      e.printStackTrace();
-      printlnDebug(
-        "Verify the correct format of 'DevicesConnected' property in configuration file."
-      );
-    } catch (JsonMappingException e) {
-      e.printStackTrace();
-      printlnDebug(
-        "Verify the correct format of 'DevicesConnected' property in configuration file."
-      );
-    } catch (IOException e) {
-      e.printStackTrace();
+    /*
+     * Os índices de Top-K só são válidos para o conjunto de dispositivos a
+     * partir do qual foram construídos.
+     */
+    if (!deviceColumnStoreTemp.hasSameDevices(this.deviceColumnStore)) {
+      this.topKIndex.clear();
     }
 
+    this.topKResultCache.devicesChanged();
+
+    this.deviceColumnStore = deviceColumnStoreTemp;
     this.devices = devicesTemp;
 
     printlnDebug("Amount of devices connected: " + this.devices.size());
@@ -205,54 +385,276 @@ public class ControllerImpl implements Controller {
    * @return Map
    */
   @Override
-  public Map<String, Integer> calculateScores(JsonArray functionHealth) {
-    Map<String, Integer> temp = new LinkedHashMap<String, Integer>();
-    List<String> sensorsTypes = this.loadSensorsTypes();
-
-    if (sensorsTypes.size() == functionHealth.size()) {
-      for (int i = 0; i < functionHealth.size(); i++) {
-        String sensorType = functionHealth
-          .get(i)
-          .getAsJsonObject()
-          .get("sensor")
-          .getAsString();
-
-        /**
-         * Caso o tipo de sensor especificado não exista nos dispositivos,
-         * retorna um Map vazio.
-         */
-        if (!sensorsTypes.contains(sensorType)) {
-          return new LinkedHashMap<String, Integer>();
-        }
-      }
+  public Map<String, Integer> calculateScores(ArrayNode functionHealth) {
+    return this.calculateScoreMap(functionHealth).toMap();
+  }
 
-      for (Device device : this.devices) {
-        int score = 0;
-        int sumWeight = 0;
-
-        for (int i = 0; i < functionHealth.size(); i++) {
-          String sensorType = functionHealth
-            .get(i)
-            .getAsJsonObject()
-            .get("sensor")
-            .getAsString();
-          int weight = functionHealth
-            .get(i)
-            .getAsJsonObject()
-            .get("weight")
-            .getAsInt();
+  /**
+   * Calcula o score dos dispositivos conectados, sem criar um objeto por
+   * score.
+   *
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @return ScoreMap
+   */
+  @Override
+  public ScoreMap calculateScoreMap(ArrayNode functionHealth) {
+    return this.calculateScoreMap(
+        ScoringPlan.compile(functionHealth),
+        functionHealth.size()
+      );
+  }
+
+  /**
+   * Calcula o score dos dispositivos conectados a partir do plano compilado
+   * da função de cálculo do Top-K.
+   *
+   * @param plan ScoringPlan - Plano compilado da função.
+   * @param termsCount int - Quantidade de termos da função original.
+   * @return ScoreMap
+   */
+  private ScoreMap calculateScoreMap(ScoringPlan plan, int termsCount) {
+    if (!this.isScorable(plan, termsCount)) {
+      return new ScoreMap();
+    }
+
+    /* Obtendo os valores de todos os sensores necessários. */
+    this.loadSensorValues(plan.getSensorTypes());
+
+    return this.deviceColumnStore.score(plan);
+  }
+
+  /**
+   * Verifica se a função pode ser calculada com os tipos de sensores dos
+   * dispositivos conectados.
+   *
+   * @param plan ScoringPlan - Plano compilado da função.
+   * @param termsCount int - Quantidade de termos da função original.
+   * @return boolean
+   */
+  private boolean isScorable(ScoringPlan plan, int termsCount) {
+    Set<String> sensorsTypes = new HashSet<String>(this.loadSensorsTypes());
+
+    /**
+     * Caso algum tipo de sensor especificado não exista nos dispositivos,
+     * não há scores a calcular.
+     */
+    return (
+      sensorsTypes.size() == termsCount &&
+      sensorsTypes.containsAll(plan.getSensorTypes()) &&
+      plan.getSumWeight() != 0
+    );
+  }
+
+  /**
+   * Calcula o Top-K dos dispositivos conectados, já ordenado. Caso a função
+   * seja requisitada com frequência, o Top-K é lido do índice mantido a cada
+   * alteração dos valores dos sensores, sem recalcular todos os scores.
+   *
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @param k int - Quantidade de scores requisitados.
+   * @return ScoreMap
+   */
+  @Override
+  public ScoreMap calculateTopK(ArrayNode functionHealth, int k) {
+    return this.calculateTopK(functionHealth, k, RequestDeadline.NONE);
+  }
+
+  /**
+   * Calcula o Top-K dos dispositivos conectados sem ultrapassar o prazo da
+   * requisição. Caso o prazo esteja próximo, os valores dos sensores não são
+   * buscados na API, e o Top-K é calculado com os últimos valores conhecidos.
+   *
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @param k int - Quantidade de scores requisitados.
+   * @param deadline long - Instante limite da requisição.
+   * @return ScoreMap
+   */
+  @Override
+  public ScoreMap calculateTopK(
+    ArrayNode functionHealth,
+    int k,
+    long deadline
+  ) {
+    ScoringPlan plan = ScoringPlan.compile(functionHealth);
+    String key = plan.getKey();
+
+    /*
+     * No modo poll, os valores expirados são buscados antes da leitura, o que
+     * atualiza o índice através das notificações do cache.
+     */
+    if (!this.isPushIngestion() && this.topKIndex.contains(key)) {
+      this.loadSensorValues(plan.getSensorTypes(), deadline);
+    }
+
+    ScoreMap topK = this.topKIndex.topK(key, k);
+
+    if (topK != null) {
+      printlnDebug("Top-K read from the index of " + key);
+
+      return topK;
+    }
+
+    if (!this.isScorable(plan, functionHealth.size())) {
+      return new ScoreMap();
+    }
+
+    /* Obtendo os valores de todos os sensores necessários. */
+    this.loadSensorValues(plan.getSensorTypes(), deadline);
+
+    DeviceColumnStore store = this.deviceColumnStore;
 
+    /*
+     * Em frotas grandes, os dispositivos são divididos em blocos pontuados em
+     * paralelo, cada um com o seu Top-K local.
+     */
+    if (this.parallelScorer.isParallel(store.size())) {
+      topK = this.parallelScorer.topK(store, plan, k);
+    } else {
+      topK = SortTopK.sortTopK(store.score(plan), k, debugModeValue);
+    }
+
+    if (!topK.isEmpty() && this.topKIndex.shouldIndex(key)) {
+      printlnDebug("Indexing the function " + key);
+
+      this.topKIndex.index(plan, store);
+    }
+
+    return topK;
+  }
+
+  /**
+   * Repassa ao índice de Top-K a alteração do valor de um sensor.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param sensorId String - Id do sensor.
+   * @param value int - Novo valor do sensor.
+   */
+  private void sensorValueChanged(String deviceId, String sensorId, int value) {
+    String sensorType = this.deviceColumnStore.update(deviceId, sensorId, value);
+
+    if (sensorType != null) {
+      this.topKIndex.valueChanged(deviceId, sensorType, value);
+      this.topKResultCache.valueChanged(sensorType);
+    }
+  }
+
+  /**
+   * Grava no armazenamento em colunas o valor carregado de um sensor.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param sensorId String - Id do sensor.
+   * @param value int - Valor do sensor.
+   */
+  private void sensorValueLoaded(String deviceId, String sensorId, int value) {
+    String sensorType =
+      this.deviceColumnStore.updateIfChanged(deviceId, sensorId, value);
+
+    if (sensorType != null) {
+      this.topKResultCache.valueChanged(sensorType);
+    }
+  }
+
+  /**
+   * Atribui aos sensores dos dispositivos os valores mais atuais. No modo de
+   * ingestão push, os valores vêm da tabela alimentada pelos próprios
+   * dispositivos via MQTT, e apenas os dispositivos que ainda não publicaram
+   * são buscados na API.
+   *
+   * @param sensorsTypes List<String> - Tipos de sensores necessários.
+   */
+  private void loadSensorValues(List<String> sensorsTypes) {
+    this.loadSensorValues(sensorsTypes, RequestDeadline.NONE);
+  }
+
+  /**
+   * Atribui aos sensores dos dispositivos os valores mais atuais que puderem
+   * ser obtidos até o prazo da requisição.
+   *
+   * @param sensorsTypes List<String> - Tipos de sensores necessários.
+   * @param deadline long - Instante limite da requisição.
+   */
+  private void loadSensorValues(List<String> sensorsTypes, long deadline) {
+    List<Device> pending = this.devices;
+
+    if (this.isPushIngestion()) {
+      pending = new ArrayList<Device>();
+
+      for (Device device : this.devices) {
+        for (String sensorType : sensorsTypes) {
           Sensor sensor = device.getSensorBySensorType(sensorType);
-          sensor.getValue(device.getId());
-          score += sensor.getValue() * weight;
-          sumWeight += weight;
-        }
 
-        temp.put(device.getId(), score / sumWeight);
+          if (sensor == null) {
+            continue;
+          }
+
+          Integer value = this.sensorValueTable.get(
+            device.getId(),
+            sensor.getId()
+          );
+
+          if (value == null) {
+            pending.add(device);
+            break;
+          }
+
+          sensor.setValue(value);
+          this.deviceColumnStore.update(device.getId(), sensor.getId(), value);
+        }
       }
     }
 
-    return temp;
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    /* Com pouco tempo restante, os últimos valores conhecidos são mantidos. */
+    if (!RequestDeadline.allowsRefresh(deadline, this.minRefreshBudgetMillis)) {
+      printlnDebug("Deadline near, skipping the sensors refresh.");
+
+      return;
+    }
+
+    long remaining = RequestDeadline.remaining(deadline);
+
+    this.sensorValueLoader.loadValues(
+        pending,
+        sensorsTypes,
+        Math.min(this.timeoutInSeconds * 1000L, remaining),
+        deadline
+      );
+  }
+
+  /**
+   * Verifica se os valores dos sensores são recebidos via MQTT.
+   *
+   * @return boolean
+   */
+  private boolean isPushIngestion() {
+    return INGESTION_PUSH.equalsIgnoreCase(this.ingestionMode);
+  }
+
+  /**
+   * Verifica se as mensagens entre os brokers podem usar o codec binário.
+   *
+   * @return boolean
+   */
+  private boolean isBinaryWire() {
+    return CODEC_BINARY.equalsIgnoreCase(this.wireCodec);
+  }
+
+  /**
+   * Verifica se as mensagens para um nó filho devem ser enviadas no formato
+   * binário.
+   *
+   * @param uri String - URI do nó filho.
+   * @return boolean
+   */
+  @Override
+  public boolean acceptsBinary(String uri) {
+    return this.binaryNodes.contains(uri);
   }
 
   /**
@@ -260,108 +662,477 @@ public class ControllerImpl implements Controller {
    *
    * @param id String - Id da requisição.
    * @param k  int - Quantidade de scores requisitados.
-   * @param functionHealth JsonArray - Array contendo a função de cálculo do
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @param policy QuorumPolicy - Política de quórum da requisição.
+   * @param deadline long - Instante limite da agregação, obtido de
+   * topKDeadline.
+   * @param requestDeadline long - Prazo explícito da requisição, que limita
+   * as consultas à API deste nó.
+   */
+  @Override
+  public void publishTopK(
+    String id,
+    int k,
+    ArrayNode functionHealth,
+    QuorumPolicy policy,
+    long deadline,
+    long requestDeadline
+  ) {
+    String key = null;
+    QueryCoalescer.Query query = null;
+
+    /*
+     * Registra a consulta para que as requisições idênticas que chegarem
+     * enquanto ela estiver em andamento recebam o mesmo resultado.
+     */
+    if (this.queryCoalescing) {
+      key = this.queryKeyOf(k, functionHealth, policy);
+      query = this.queryCoalescer.open(key);
+    }
+
+    Consumer<String> reply = null;
+
+    /*
+     * A consulta é finalizada uma única vez, após a publicação do resultado
+     * desta requisição, e a requisição é removida da tabela mesmo que o
+     * cálculo ou a publicação falhem.
+     */
+    try {
+      reply =
+        this.answerTopK(
+            id,
+            k,
+            functionHealth,
+            policy,
+            deadline,
+            requestDeadline
+          );
+      reply.accept(id);
+    } finally {
+      try {
+        /* As requisições idênticas anexadas recebem o mesmo resultado. */
+        for (String followerId : this.queryCoalescer.close(key, query)) {
+          if (reply != null) {
+            reply.accept(followerId);
+          } else {
+            this.sendInvalidTopKMessage(
+                followerId,
+                "Can't possible calculate the Top-K, the request failed!"
+              );
+          }
+        }
+      } finally {
+        this.removeRequest(id);
+        this.removeSpecificResponse(id);
+      }
+    }
+  }
+
+  /**
+   * Anexa a requisição a uma consulta idêntica (mesmos k, função e política
+   * de quórum) em andamento, que publicará o resultado também sob o id desta
+   * requisição.
+   *
+   * @param id String - Id da requisição.
+   * @param k int - Quantidade de scores requisitados.
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
    * Top-K.
+   * @param policy QuorumPolicy - Política de quórum da requisição.
+   * @return boolean - Se a requisição foi anexada; caso contrário, ela deve
+   * ser processada normalmente.
+   */
+  @Override
+  public boolean attachToPendingTopK(
+    String id,
+    int k,
+    ArrayNode functionHealth,
+    QuorumPolicy policy
+  ) {
+    if (!this.queryCoalescing) {
+      return false;
+    }
+
+    return this.queryCoalescer.attach(
+        this.queryKeyOf(k, functionHealth, policy),
+        id
+      );
+  }
+
+  /**
+   * Lê a política de quórum de uma requisição de Top-K, usando a política
+   * padrão do broker para as opções ausentes.
+   *
+   * @param request ObjectNode - Requisição de Top-K.
+   * @return QuorumPolicy
    */
   @Override
-  public void publishTopK(String id, int k, JsonArray functionHealth) {
-    printlnDebug("Waiting for Gateway nodes to send their Top-K");
+  public QuorumPolicy quorumPolicyOf(ObjectNode request) {
+    return QuorumPolicy.fromRequest(request, this.defaultQuorumPolicy);
+  }
 
-    long start = System.currentTimeMillis();
-    long end = start + this.timeoutInSeconds * 1000;
+  /**
+   * Calcula o instante limite da agregação de uma requisição de Top-K. O
+   * prazo vem das latências observadas dos nós filhos, limitado pelo tempo
+   * máximo configurado, para que um nó lento não atrase toda requisição; o
+   * orçamento de latência da requisição conta desde a sua chegada.
+   *
+   * @param receivedAt long - Instante (em milissegundos) da chegada da
+   * requisição.
+   * @param policy QuorumPolicy - Política de quórum da requisição.
+   * @return long
+   */
+  @Override
+  public long topKDeadline(long receivedAt, QuorumPolicy policy) {
+    long timeout = this.timeoutInSeconds * 1000L;
 
     if (this.hasNodes) {
-      /*
-       * Enquanto a quantidade de respostas da requisição for menor que o número
-       * de nós filhos
-       */
-      while (
-        this.responseQueue.get(id) < this.nodesUris.size() &&
-        System.currentTimeMillis() < end
-      ) {}
+      timeout = this.latencyTracker.deadlineFor(this.nodesUris, timeout);
     }
 
+    return policy.deadline(receivedAt, System.currentTimeMillis() + timeout);
+  }
+
+  /**
+   * Calcula o instante limite da espera pelos tipos de sensores dos nós
+   * filhos.
+   *
+   * @param receivedAt long - Instante (em milissegundos) da chegada da
+   * requisição.
+   * @return long
+   */
+  @Override
+  public long sensorsDeadline(long receivedAt) {
+    return receivedAt + this.timeoutInSeconds * 1000L;
+  }
+
+  private String queryKeyOf(int k, ArrayNode functionHealth) {
+    return QueryCoalescer.keyOf(
+      ScoringPlan.compile(functionHealth),
+      functionHealth.size(),
+      k
+    );
+  }
+
+  private String queryKeyOf(
+    int k,
+    ArrayNode functionHealth,
+    QuorumPolicy policy
+  ) {
+    return QueryCoalescer.keyOf(
+      ScoringPlan.compile(functionHealth),
+      functionHealth.size(),
+      k,
+      policy
+    );
+  }
+
+  /**
+   * Calcula o Top-K dos próprios dispositivos e aguarda o Top-K dos nós
+   * filhos.
+   *
+   * @param id String - Id da requisição.
+   * @param k  int - Quantidade de scores requisitados.
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @param policy QuorumPolicy - Política de quórum da requisição.
+   * @param deadline long - Instante limite da agregação.
+   * @param requestDeadline long - Prazo explícito da requisição.
+   * @return Consumer<String> - Publica o resultado para a camada de cima sob
+   * o id de requisição recebido.
+   */
+  private Consumer<String> answerTopK(
+    String id,
+    int k,
+    ArrayNode functionHealth,
+    QuorumPolicy policy,
+    long deadline,
+    long requestDeadline
+  ) {
+    ScoringPlan plan = ScoringPlan.compile(functionHealth);
+    /*
+     * As versões são registradas antes da leitura dos dispositivos e dos
+     * valores, para que uma alteração durante o cálculo impeça que o
+     * resultado seja armazenado.
+     */
+    long[] stamp = this.topKResultCache.stamp(plan);
+
     /*
      * Consumindo apiIot para pegar os valores mais atualizados dos
-     * dispositivos.
+     * dispositivos, enquanto os nós filhos calculam os seus Top-K. O prazo
+     * de agregação vem das latências dos nós filhos e não limita a consulta
+     * dos próprios dispositivos; apenas o prazo explícito da requisição.
      */
-    this.loadConnectedDevices();
+    this.loadConnectedDevices(requestDeadline);
 
     if (!this.devices.isEmpty()) {
-      /* Adicionando os dispositivos conectados em si mesmo. */
-      this.putScores(id, this.calculateScores(functionHealth));
+      /*
+       * Adicionando os dispositivos conectados em si mesmo. Apenas os k
+       * melhores scores dos próprios dispositivos podem fazer parte do Top-K
+       * final.
+       */
+      this.putScores(
+          id,
+          this.calculateTopK(functionHealth, k, requestDeadline)
+        );
+    }
 
-      int topkMapSize = this.topKScores.get(id).size();
+    if (this.hasNodes) {
+      printlnDebug("Waiting for Gateway nodes to send their Top-K");
 
-      if (topkMapSize < k) {
-        printlnDebug("Insufficient Top-K!");
+      /*
+       * Aguarda até que o quórum de nós filhos responda ou até que o tempo
+       * limite, ou o orçamento de latência da requisição, seja atingido.
+       */
+      boolean quorum = this.awaitResponses(
+        id,
+        deadline,
+        policy.getFraction()
+      );
 
-        this.sendInvalidTopKMessage(
-            id,
-            String.format(
-              "Can't possible calculate the Top-%s, sending the Top-%d!",
-              k,
-              topkMapSize
-            )
-          );
+      /*
+       * Apenas os nós que excederam o prazo do broker têm a espera registrada;
+       * o orçamento da requisição reduziria indevidamente os prazos seguintes.
+       */
+      if (!quorum && policy.getBudgetMillis() == 0) {
+        this.recordStragglers(id);
       }
     }
 
+    /*
+     * Os nós filhos são lidos antes do Top-K, para que todo nó listado já
+     * tenha os seus scores mesclados.
+     */
+    ResponseCompletion completion = this.requestTable.getResponses(id);
+    boolean complete = completion == null || completion.isComplete();
+    List<String> contributors = completion == null
+      ? new ArrayList<String>()
+      : new ArrayList<String>(completion.getRespondedNodes());
+
     printlnDebug("OK... now let's calculate the TOP-K of TOP-K's!");
 
     /*
-     * Reordenando o mapa de Top-K (Ex: {device2=23, device1=14}) e
-     * atribuindo-o à carga de mensagem do MQTT
+     * O Top-K de Top-K's (Ex: {device2=23, device1=14}) já foi mesclado à
+     * medida que as respostas chegaram; basta atribuí-lo à carga de mensagem
+     * do MQTT.
      */
-    Map<String, Integer> topK = SortTopK.sortTopK(
-      this.getMapById(id),
-      k,
-      debugModeValue
-    );
+    ScoreMap topK = this.getScoreMapById(id);
+
+    if (topK == null) {
+      topK = new ScoreMap();
+    }
+
+    boolean insufficient = !this.devices.isEmpty() && topK.size() < k;
+
+    /* Apenas os resultados com a resposta de todos os nós são armazenados. */
+    if (complete && this.topKResultCache.isEnabled()) {
+      this.topKResultCache.put(
+          QueryCoalescer.keyOf(plan, functionHealth.size(), k),
+          plan,
+          stamp,
+          topK,
+          insufficient,
+          contributors
+        );
+    }
 
     printlnDebug("Top-K Result => " + topK.toString());
     printlnDebug("==== Fog gateway -> Cloud gateway  ====");
 
-    JsonObject json = new JsonObject();
-    json.addProperty("id", id);
-    json.addProperty("timestamp", System.currentTimeMillis());
+    if (!complete) {
+      printlnDebug(
+        String.format(
+          "Partial Top-K, contributors: %s of %d nodes.",
+          contributors,
+          completion.getExpected()
+        )
+      );
+    }
 
-    String deviceListJson = new Gson().toJson(MapToArray.mapToArray(topK));
+    /* O formato original da resposta é mantido quando não há quórum. */
+    List<String> replyContributors = policy.isPartial() ? contributors : null;
+    ScoreMap result = topK;
+
+    return requestId ->
+      this.sendTopK(
+          requestId,
+          k,
+          result,
+          insufficient,
+          replyContributors,
+          complete
+        );
+  }
 
-    json.addProperty("devices", deviceListJson);
+  /**
+   * Publica um Top-K para a camada de cima.
+   *
+   * @param id String - Id da requisição.
+   * @param k int - Quantidade de scores requisitados.
+   * @param topK ScoreMap - Top-K resultante.
+   * @param insufficient boolean - Se o Top-K possui menos que k scores.
+   * @param contributors List<String> - URIs dos nós filhos que contribuíram
+   * para o Top-K, ou null para omiti-los da resposta.
+   * @param complete boolean - Se todos os nós filhos responderam.
+   */
+  private void sendTopK(
+    String id,
+    int k,
+    ScoreMap topK,
+    boolean insufficient,
+    List<String> contributors,
+    boolean complete
+  ) {
+    if (insufficient) {
+      printlnDebug("Insufficient Top-K!");
+
+      this.sendInvalidTopKMessage(
+          id,
+          String.format(
+            "Can't possible calculate the Top-%s, sending the Top-%d!",
+            k,
+            topK.size()
+          )
+        );
+    }
 
-    byte[] payload = json.toString().replace("\\", "").getBytes();
+    byte[] payload = JsonCodec.writeTopKResponse(
+      id,
+      System.currentTimeMillis(),
+      topK,
+      contributors,
+      complete
+    );
 
     MQTTClientUp.publish(TOP_K_RES_FOG + id, payload, 1);
+  }
+
+  /**
+   * Publica o resultado armazenado de uma consulta idêntica (mesmos k e
+   * função), sem consultar os nós filhos.
+   *
+   * @param id String - Id da requisição.
+   * @param k int - Quantidade de scores requisitados.
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @param policy QuorumPolicy - Política de quórum da requisição.
+   * @param requestDeadline long - Prazo explícito da requisição, que decide
+   * se a lista de dispositivos pode ser atualizada pela API.
+   * @return boolean - Se a requisição foi respondida.
+   */
+  @Override
+  public boolean publishCachedTopK(
+    String id,
+    int k,
+    ArrayNode functionHealth,
+    QuorumPolicy policy,
+    long requestDeadline
+  ) {
+    if (!this.topKResultCache.isEnabled()) {
+      return false;
+    }
+
+    /*
+     * Alterações na lista de dispositivos invalidam os resultados; com pouco
+     * tempo restante, a lista atual é usada sem consultar a API.
+     */
+    this.loadConnectedDevices(requestDeadline);
 
-    this.removeRequest(id);
-    this.removeSpecificResponse(id);
+    TopKResultCache.CachedResult result =
+      this.topKResultCache.get(this.queryKeyOf(k, functionHealth));
+
+    if (result == null) {
+      return false;
+    }
+
+    printlnDebug("Top-K Result (cached) => " + result.getTopK().toString());
+
+    /* Apenas os resultados completos são armazenados. */
+    this.sendTopK(
+        id,
+        k,
+        result.getTopK(),
+        result.isInsufficient(),
+        policy.isPartial() ? result.getContributors() : null,
+        true
+      );
+
+    return true;
   }
 
   /**
    * Publica os tipos de sensores para a camada de cima.
+   *
+   * @param deadline long - Instante limite da espera, obtido de
+   * sensorsDeadline.
    */
   @Override
-  public void publishSensorType() {
+  public void publishSensorType(long deadline) {
     printlnDebug("Waiting for Gateway nodes to send their sensors types");
 
-    long start = System.currentTimeMillis();
-    long end = start + this.timeoutInSeconds * 1000;
+    try {
+      /*
+       * Aguarda até que todos os nós filhos respondam ou até que o tempo
+       * limite seja atingido.
+       */
+      this.awaitResponses("getSensors", deadline);
+
+      byte[] payload = JsonCodec.writeSensorsTypesUp(
+        sensorsTypesJSON.get("sensors").asText()
+      );
 
-    /*
-     * Enquanto a quantidade de respostas da requisição for menor que o número
-     * de nós filhos
-     */
-    while (
-      this.responseQueue.get("getSensors") < this.nodesUris.size() &&
-      System.currentTimeMillis() < end
-    ) {}
+      MQTTClientUp.publish(SENSORS_FOG_RES, payload, 1);
+    } finally {
+      this.removeSpecificResponse("getSensors");
+    }
+  }
+
+  /**
+   * Aguarda as respostas dos nós filhos de uma requisição, sem ocupar a CPU,
+   * até que o último filho responda ou o prazo seja atingido.
+   *
+   * @param key String - Id da requisição.
+   * @param end long - Instante limite (em milissegundos) da espera.
+   * @return boolean - Se todos os nós filhos responderam.
+   */
+  private boolean awaitResponses(String key, long end) {
+    return this.awaitResponses(key, end, 1);
+  }
+
+  /**
+   * Aguarda as respostas dos nós filhos de uma requisição, sem ocupar a CPU,
+   * até que a fração informada dos filhos responda ou o prazo seja atingido.
+   *
+   * @param key String - Id da requisição.
+   * @param end long - Instante limite (em milissegundos) da espera.
+   * @param quorum double - Fração dos nós filhos, entre 0 e 1.
+   * @return boolean - Se o quórum foi atingido.
+   */
+  private boolean awaitResponses(String key, long end, double quorum) {
+    ResponseCompletion completion = this.requestTable.getResponses(key);
+
+    if (completion == null) {
+      return true;
+    }
 
-    byte[] payload = sensorsTypesJSON.toString().replace("\\", "").getBytes();
+    try {
+      if (completion.await(end, quorum)) {
+        return true;
+      }
 
-    MQTTClientUp.publish(SENSORS_FOG_RES, payload, 1);
+      printlnDebug(
+        String.format(
+          "Timeout! Only %d of %d nodes answered the request %s.",
+          completion.getReceived(),
+          completion.getExpected(),
+          key
+        )
+      );
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
 
-    this.removeSpecificResponse("getSensors");
+    return false;
   }
 
   /**
@@ -389,7 +1160,17 @@ public class ControllerImpl implements Controller {
    */
   @Override
   public Map<String, Map<String, Integer>> getTopKScores() {
-    return this.topKScores;
+    Map<String, Map<String, Integer>> scores = new LinkedHashMap<String, Map<String, Integer>>();
+
+    for (String id : this.requestTable.ids()) {
+      Map<String, Integer> scoreMap = this.getMapById(id);
+
+      if (scoreMap != null) {
+        scores.put(id, scoreMap);
+      }
+    }
+
+    return scores;
   }
 
   /**
@@ -401,33 +1182,85 @@ public class ControllerImpl implements Controller {
    */
   @Override
   public Map<String, Integer> getMapById(String id) {
-    return this.topKScores.get(id);
+    ScoreMap scoreMap = this.getScoreMapById(id);
+
+    return scoreMap == null ? null : scoreMap.toMap();
+  }
+
+  /**
+   * Retorna o Top-K parcial, já ordenado, de acordo com o id da requisição
+   * passado por parâmetro.
+   *
+   * @param id String - Id da requisição.
+   * @return ScoreMap
+   */
+  @Override
+  public ScoreMap getScoreMapById(String id) {
+    TopKHeap heap = this.requestTable.getScores(id);
+
+    if (heap == null) {
+      return null;
+    }
+
+    synchronized (heap) {
+      return heap.toScoreMap();
+    }
+  }
+
+  /**
+   * Cria o Top-K parcial de uma nova requisição, no qual os scores são
+   * mesclados à medida que chegam, mantendo apenas os k melhores.
+   *
+   * @param id String - Id da requisição.
+   * @param k int - Quantidade de scores requisitados.
+   * @return boolean - Se a requisição foi aceita, ou recusada por exceder o
+   * limite de requisições em andamento.
+   */
+  @Override
+  public boolean addRequest(String id, int k) {
+    return this.requestTable.addScores(id, k);
   }
 
   /**
-   * Adiciona um mapa de scores de uma nova requisição no mapa de
-   * requisições na sua respectiva.
+   * Mescla um mapa de scores ao Top-K parcial da requisição.
    *
    * @param id     String - Id da requisição.
-   * @param fogMap Map - Mapa de requisições.
+   * @param fogMap Map - Mapa de scores.
    */
   @Override
   public void putScores(String id, Map<String, Integer> fogMap) {
-    if (this.topKScores.get(id) != null) {
-      this.topKScores.get(id).putAll(fogMap);
-    } else {
-      this.topKScores.put(id, fogMap).isEmpty();
+    this.putScores(id, ScoreMap.fromMap(fogMap));
+  }
+
+  /**
+   * Mescla um mapa de scores ao Top-K parcial da requisição.
+   *
+   * @param id     String - Id da requisição.
+   * @param fogMap ScoreMap - Mapa de scores.
+   */
+  @Override
+  public void putScores(String id, ScoreMap fogMap) {
+    TopKHeap heap = this.requestTable.getScores(id);
+
+    /* A requisição já foi finalizada. */
+    if (heap == null) {
+      printlnDebug("Scores received for a finished request: " + id);
+      return;
+    }
+
+    synchronized (heap) {
+      heap.offerAll(fogMap);
     }
   }
 
   /**
    * Adiciona os sensores em um JSON para enviar para a camada superior.
    *
-   * @param jsonReceived JSONObject - JSON contendo os tipos dos sensores.
+   * @param jsonReceived ObjectNode - JSON contendo os tipos dos sensores.
    */
   @Override
-  public void putSensorsTypes(JsonObject jsonReceived) {
-    if (this.sensorsTypesJSON.get("sensors").getAsString().equals("[]")) {
+  public void putSensorsTypes(ObjectNode jsonReceived) {
+    if (this.sensorsTypesJSON.get("sensors").asText().equals("[]")) {
       sensorsTypesJSON = jsonReceived;
     }
   }
@@ -454,17 +1287,18 @@ public class ControllerImpl implements Controller {
    */
   @Override
   public void removeRequest(String id) {
-    this.topKScores.remove(id);
+    this.requestTable.removeScores(id);
   }
 
   /**
    * Cria uma nova chave no mapa de resposta dos filhos.
    *
    * @param id String - Id da requisição.
+   * @param nodesUris List<String> - Nós filhos que receberão a requisição.
    */
   @Override
-  public void addResponse(String id) {
-    responseQueue.put(id, 0);
+  public void addResponse(String id, List<String> nodesUris) {
+    this.requestTable.addResponses(id, nodesUris.size());
   }
 
   /**
@@ -474,8 +1308,76 @@ public class ControllerImpl implements Controller {
    */
   @Override
   public void updateResponse(String id) {
-    int temp = responseQueue.get(id);
-    responseQueue.put(id, ++temp);
+    this.updateResponse(id, null);
+  }
+
+  /**
+   * Atualiza a quantidade de respostas, registrando o tempo de resposta do
+   * nó filho.
+   *
+   * @param id String - Id da requisição.
+   * @param nodeUri String - URI do nó filho, ou null caso não seja
+   * informada.
+   */
+  @Override
+  public void updateResponse(String id, String nodeUri) {
+    ResponseCompletion completion = this.requestTable.getResponses(id);
+
+    /* A resposta chegou após o término da requisição. */
+    if (completion == null) {
+      return;
+    }
+
+    /* Apenas a primeira resposta de cada nó tem a latência registrada. */
+    if (completion.signal(nodeUri) && nodeUri != null) {
+      this.latencyTracker.record(
+          nodeUri,
+          System.currentTimeMillis() - completion.getCreatedAt()
+        );
+    }
+  }
+
+  /**
+   * Registra os nós filhos que não responderam a requisição dentro do prazo.
+   *
+   * @param id String - Id da requisição.
+   */
+  private void recordStragglers(String id) {
+    ResponseCompletion completion = this.requestTable.getResponses(id);
+
+    if (completion == null) {
+      return;
+    }
+
+    Set<String> responded = completion.getRespondedNodes();
+    Set<String> unreachable = completion.getUnreachableNodes();
+    long waited = System.currentTimeMillis() - completion.getCreatedAt();
+
+    for (String uri : this.nodesUris) {
+      if (!responded.contains(uri) && !unreachable.contains(uri)) {
+        this.latencyTracker.recordTimeout(uri, waited);
+      }
+    }
+  }
+
+  /**
+   * Desconta da requisição um nó filho que não recebeu a mensagem, para que
+   * a sua resposta deixe de ser aguardada.
+   *
+   * @param key String - Id da requisição.
+   * @param nodeUri String - URI do nó filho.
+   */
+  @Override
+  public void discountResponse(String key, String nodeUri) {
+    ResponseCompletion completion = this.requestTable.getResponses(key);
+
+    if (completion != null) {
+      printlnDebug(
+        String.format("Node %s did not receive the request %s.", nodeUri, key)
+      );
+
+      completion.discount(nodeUri);
+    }
   }
 
   /**
@@ -485,7 +1387,7 @@ public class ControllerImpl implements Controller {
    */
   @Override
   public void removeSpecificResponse(String id) {
-    responseQueue.remove(id);
+    this.requestTable.removeResponses(id);
   }
 
   /**
@@ -509,10 +1411,32 @@ public class ControllerImpl implements Controller {
    */
   @Override
   public void addNodeUri(String uri) {
+    /* O codec anunciado pelo nó, caso já recebido, é mantido. */
+    this.addNodeUri(uri, this.binaryNodes.contains(uri));
+  }
+
+  /**
+   * Adiciona um URI na lista de URIs, informando se o nó aceita mensagens no
+   * formato binário.
+   *
+   * @param uri String - URI que deseja adicionar.
+   * @param binary boolean - Se o nó anunciou o codec binário.
+   */
+  @Override
+  public void addNodeUri(String uri, boolean binary) {
+    if (binary && this.isBinaryWire()) {
+      this.binaryNodes.add(uri);
+    } else {
+      this.binaryNodes.remove(uri);
+    }
+
     if (!this.nodesUris.contains(uri)) {
       this.nodesUris.add(uri);
     }
 
+    /* Mantém uma conexão aberta com o nó para as próximas requisições. */
+    this.MQTTClientsDown.open(uri);
+
     printlnDebug(String.format("URI: %s added in the nodesIps list.", uri));
     this.showNodesConnected();
   }
@@ -528,6 +1452,9 @@ public class ControllerImpl implements Controller {
 
     if (pos != -1) {
       this.nodesUris.remove(pos);
+      this.binaryNodes.remove(uri);
+      this.latencyTracker.remove(uri);
+      this.MQTTClientsDown.close(uri);
 
       printlnDebug(String.format("URI: %s removed in the nodesIps list.", uri));
 
@@ -610,10 +1537,6 @@ public class ControllerImpl implements Controller {
     this.MQTTClientUp = MQTTClientUp;
   }
 
-  public void setTopKScores(Map<String, Map<String, Integer>> topKScores) {
-    this.topKScores = topKScores;
-  }
-
   public MQTTClient getMQTTClientHost() {
     return this.MQTTClientHost;
   }
@@ -664,13 +1587,159 @@ public class ControllerImpl implements Controller {
     this.timeoutInSeconds = timeoutInSeconds;
   }
 
+  public void setRequestWorkers(int requestWorkers) {
+    this.requestWorkers = requestWorkers;
+  }
+
+  public void setRequestQueueSize(int requestQueueSize) {
+    this.requestQueueSize = requestQueueSize;
+  }
+
+  public void setRequestQueuePolicy(String requestQueuePolicy) {
+    this.requestQueuePolicy = requestQueuePolicy;
+  }
+
+  public void setFanOutParallelism(int fanOutParallelism) {
+    this.fanOutParallelism = fanOutParallelism;
+  }
+
+  public void setHttpParallelism(int httpParallelism) {
+    this.httpParallelism = httpParallelism;
+  }
+
+  public void setSensorBatchSize(int sensorBatchSize) {
+    this.sensorBatchSize = sensorBatchSize;
+  }
+
+  public void setSensorCacheMaxEntries(int sensorCacheMaxEntries) {
+    this.sensorCacheMaxEntries = sensorCacheMaxEntries;
+  }
+
+  public void setSensorCacheMaxStalenessMillis(
+    long sensorCacheMaxStalenessMillis
+  ) {
+    this.sensorCacheMaxStalenessMillis = sensorCacheMaxStalenessMillis;
+  }
+
+  public void setSensorCacheRefreshMillis(long sensorCacheRefreshMillis) {
+    this.sensorCacheRefreshMillis = sensorCacheRefreshMillis;
+  }
+
+  public void setMaxInFlightRequests(int maxInFlightRequests) {
+    this.maxInFlightRequests = maxInFlightRequests;
+  }
+
+  public void setRequestTtlSeconds(int requestTtlSeconds) {
+    this.requestTtlSeconds = requestTtlSeconds;
+  }
+
+  public void setAdaptiveDeadlinePercentile(double adaptiveDeadlinePercentile) {
+    this.adaptiveDeadlinePercentile = adaptiveDeadlinePercentile;
+  }
+
+  public void setAdaptiveDeadlineMarginMillis(
+    long adaptiveDeadlineMarginMillis
+  ) {
+    this.adaptiveDeadlineMarginMillis = adaptiveDeadlineMarginMillis;
+  }
+
+  public void setQuorumFraction(double quorumFraction) {
+    this.quorumFraction = quorumFraction;
+  }
+
+  public void setQuorumBudgetMillis(long quorumBudgetMillis) {
+    this.quorumBudgetMillis = quorumBudgetMillis;
+  }
+
+  public void setMinRefreshBudgetMillis(long minRefreshBudgetMillis) {
+    this.minRefreshBudgetMillis = minRefreshBudgetMillis;
+  }
+
+  public LatencyTracker getLatencyTracker() {
+    return this.latencyTracker;
+  }
+
+  /**
+   * Retorna o URI deste nó, informado ao nó pai.
+   *
+   * @return String
+   */
+  @Override
+  public String getNodeUri() {
+    return this.nodeUri;
+  }
+
+  public void setResultCacheMaxEntries(int resultCacheMaxEntries) {
+    this.resultCacheMaxEntries = resultCacheMaxEntries;
+  }
+
+  public void setResultCacheMaxAgeMillis(long resultCacheMaxAgeMillis) {
+    this.resultCacheMaxAgeMillis = resultCacheMaxAgeMillis;
+  }
+
+  public TopKResultCache getTopKResultCache() {
+    return this.topKResultCache;
+  }
+
+  public void setQueryCoalescing(boolean queryCoalescing) {
+    this.queryCoalescing = queryCoalescing;
+  }
+
+  public QueryCoalescer getQueryCoalescer() {
+    return this.queryCoalescer;
+  }
+
+  public RequestTable getRequestTable() {
+    return this.requestTable;
+  }
+
+  public SensorValueCache getSensorValueCache() {
+    return this.sensorValueCache;
+  }
+
+  public void setIngestionMode(String ingestionMode) {
+    this.ingestionMode = ingestionMode;
+  }
+
+  public void setIngestionTopic(String ingestionTopic) {
+    this.ingestionTopic = ingestionTopic;
+  }
+
+  public SensorValueTable getSensorValueTable() {
+    return this.sensorValueTable;
+  }
+
+  public void setIndexMaxFunctions(int indexMaxFunctions) {
+    this.indexMaxFunctions = indexMaxFunctions;
+  }
+
+  public void setIndexTtlSeconds(int indexTtlSeconds) {
+    this.indexTtlSeconds = indexTtlSeconds;
+  }
+
+  public void setWireCodec(String wireCodec) {
+    this.wireCodec = wireCodec;
+  }
+
+  public void setRegistryRefreshMillis(long registryRefreshMillis) {
+    this.registryRefreshMillis = registryRefreshMillis;
+  }
+
+  public void setScoringParallelism(int scoringParallelism) {
+    this.scoringParallelism = scoringParallelism;
+  }
+
+  public void setScoringParallelThreshold(int scoringParallelThreshold) {
+    this.scoringParallelThreshold = scoringParallelThreshold;
+  }
+
   /**
    * Retorna um JSON contendo os tipos de sensores disponíveis.
    *
-   * @return JsonObject
+   * @return ObjectNode
    */
   @Override
-  public JsonObject getSensorsTypesJSON() {
+  public ObjectNode getSensorsTypesJSON() {
     return sensorsTypesJSON;
   }
 }
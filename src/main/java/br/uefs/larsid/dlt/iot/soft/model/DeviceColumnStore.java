@@ -0,0 +1,309 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import br.uefs.larsid.dlt.iot.soft.entity.Device;
+import br.uefs.larsid.dlt.iot.soft.entity.Sensor;
+import br.uefs.larsid.dlt.iot.soft.utils.ScoreMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DeviceColumnStore {
+
+  /* Dicionários de dispositivos e de tipos de sensores. */
+  private final Map<String, Integer> deviceIndex;
+  private final String[] deviceIds;
+  private final Map<String, Integer> typeIndex;
+  private final String[] sensorTypes;
+  /*
+   * Ids dos sensores de cada dispositivo, por tipo: [dispositivo][tipo].
+   * Dispositivos com os mesmos sensores compartilham o mesmo vetor.
+   */
+  private final String[][] sensorIds;
+  /* Valores dos sensores, por tipo: [tipo][dispositivo]. */
+  private final int[][] columns;
+
+  /**
+   * Método construtor.
+   *
+   * @param devices List<Device> - Dispositivos conectados.
+   */
+  private DeviceColumnStore(List<Device> devices) {
+    this.deviceIndex = new HashMap<String, Integer>(devices.size() * 2);
+    this.deviceIds = new String[devices.size()];
+    this.typeIndex = new HashMap<String, Integer>();
+
+    List<String> types = new ArrayList<String>();
+
+    for (int d = 0; d < devices.size(); d++) {
+      Device device = devices.get(d);
+
+      this.deviceIds[d] = device.getId();
+      this.deviceIndex.put(device.getId(), d);
+
+      for (Sensor sensor : device.getSensors()) {
+        if (!this.typeIndex.containsKey(sensor.getType())) {
+          this.typeIndex.put(sensor.getType(), types.size());
+          types.add(sensor.getType());
+        }
+      }
+    }
+
+    this.sensorTypes = types.toArray(new String[types.size()]);
+    this.sensorIds = new String[devices.size()][];
+    this.columns = new int[types.size()][devices.size()];
+
+    Map<List<String>, String[]> layouts = new HashMap<List<String>, String[]>();
+
+    for (int d = 0; d < devices.size(); d++) {
+      String[] deviceSensorIds = new String[types.size()];
+
+      for (Sensor sensor : devices.get(d).getSensors()) {
+        int type = this.typeIndex.get(sensor.getType());
+
+        deviceSensorIds[type] = sensor.getId();
+        this.columns[type][d] = sensor.getValue();
+      }
+
+      String[] layout = layouts.get(Arrays.asList(deviceSensorIds));
+
+      if (layout == null) {
+        layout = deviceSensorIds;
+        layouts.put(Arrays.asList(layout), layout);
+      }
+
+      this.sensorIds[d] = layout;
+    }
+  }
+
+  /**
+   * Cria o armazenamento a partir dos dispositivos conectados, mantendo os
+   * valores já conhecidos dos sensores que continuam conectados.
+   *
+   * @param devices List<Device> - Dispositivos conectados.
+   * @param previous DeviceColumnStore - Armazenamento anterior, ou null.
+   * @return DeviceColumnStore
+   */
+  public static DeviceColumnStore build(
+    List<Device> devices,
+    DeviceColumnStore previous
+  ) {
+    DeviceColumnStore store = new DeviceColumnStore(devices);
+
+    if (previous == null) {
+      return store;
+    }
+
+    for (int t = 0; t < store.sensorTypes.length; t++) {
+      int previousType = previous.typeOf(store.sensorTypes[t]);
+
+      if (previousType < 0) {
+        continue;
+      }
+
+      for (int d = 0; d < store.deviceIds.length; d++) {
+        int previousDevice = previous.deviceOf(store.deviceIds[d]);
+
+        if (
+          previousDevice >= 0 &&
+          store.sensorIds[d][t] != null &&
+          store.sensorIds[d][t].equals(
+              previous.sensorIds[previousDevice][previousType]
+            )
+        ) {
+          store.columns[t][d] = previous.columns[previousType][previousDevice];
+        }
+      }
+    }
+
+    return store;
+  }
+
+  /**
+   * Atualiza o valor de um sensor.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param sensorId String - Id do sensor.
+   * @param value int - Novo valor do sensor.
+   * @return String - Tipo do sensor atualizado, ou null caso o sensor não
+   * pertença a um dispositivo conectado.
+   */
+  public String update(String deviceId, String sensorId, int value) {
+    int device = this.deviceOf(deviceId);
+
+    if (device < 0) {
+      return null;
+    }
+
+    for (int t = 0; t < this.sensorTypes.length; t++) {
+      if (sensorId.equals(this.sensorIds[device][t])) {
+        this.columns[t][device] = value;
+
+        return this.sensorTypes[t];
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Atualiza o valor de um sensor, informando o seu tipo apenas quando o
+   * valor muda.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param sensorId String - Id do sensor.
+   * @param value int - Novo valor do sensor.
+   * @return String - Tipo do sensor atualizado, ou null caso o valor não
+   * tenha mudado ou o sensor não pertença a um dispositivo conectado.
+   */
+  public String updateIfChanged(String deviceId, String sensorId, int value) {
+    int device = this.deviceOf(deviceId);
+
+    if (device < 0) {
+      return null;
+    }
+
+    for (int t = 0; t < this.sensorTypes.length; t++) {
+      if (sensorId.equals(this.sensorIds[device][t])) {
+        if (this.columns[t][device] == value) {
+          return null;
+        }
+
+        this.columns[t][device] = value;
+
+        return this.sensorTypes[t];
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Calcula o score de todos os dispositivos, percorrendo sequencialmente a
+   * coluna de cada termo do plano. Tipos de sensores ausentes valem zero.
+   *
+   * @param plan ScoringPlan - Plano compilado da função.
+   * @return ScoreMap
+   */
+  public ScoreMap score(ScoringPlan plan) {
+    return this.score(plan, 0, this.deviceIds.length);
+  }
+
+  /**
+   * Calcula o score de um intervalo de dispositivos.
+   *
+   * @param plan ScoringPlan - Plano compilado da função.
+   * @param from int - Posição do primeiro dispositivo (inclusiva).
+   * @param to int - Posição do último dispositivo (exclusiva).
+   * @return ScoreMap
+   */
+  public ScoreMap score(ScoringPlan plan, int from, int to) {
+    ScoreMap scoreMap = new ScoreMap(to - from);
+
+    this.score(plan, from, to, scoreMap::put);
+
+    return scoreMap;
+  }
+
+  /**
+   * Calcula o score de um intervalo de dispositivos, entregando cada score ao
+   * consumidor na ordem dos dispositivos.
+   *
+   * @param plan ScoringPlan - Plano compilado da função.
+   * @param from int - Posição do primeiro dispositivo (inclusiva).
+   * @param to int - Posição do último dispositivo (exclusiva).
+   * @param consumer ScoreConsumer - Consumidor dos scores.
+   */
+  public void score(
+    ScoringPlan plan,
+    int from,
+    int to,
+    ScoreMap.ScoreConsumer consumer
+  ) {
+    int[] scores = new int[to - from];
+    List<String> planTypes = plan.getSensorTypes();
+
+    for (int i = 0; i < planTypes.size(); i++) {
+      int type = this.typeOf(planTypes.get(i));
+      int weight = plan.weightAt(i);
+
+      if (type < 0 || weight == 0) {
+        continue;
+      }
+
+      int[] column = this.columns[type];
+
+      for (int d = from; d < to; d++) {
+        scores[d - from] += column[d] * weight;
+      }
+    }
+
+    for (int d = from; d < to; d++) {
+      consumer.accept(
+        this.deviceIds[d],
+        scores[d - from] / plan.getSumWeight()
+      );
+    }
+  }
+
+  /**
+   * Copia para o vetor, na posição de cada termo do plano, os valores dos
+   * sensores de um dispositivo.
+   *
+   * @param plan ScoringPlan - Plano compilado da função.
+   * @param device int - Posição do dispositivo.
+   * @param values int[] - Vetor com uma posição por termo.
+   */
+  public void readValues(ScoringPlan plan, int device, int[] values) {
+    List<String> planTypes = plan.getSensorTypes();
+
+    for (int i = 0; i < planTypes.size(); i++) {
+      int type = this.typeOf(planTypes.get(i));
+
+      values[i] = type < 0 ? 0 : this.columns[type][device];
+    }
+  }
+
+  /**
+   * Retorna a posição de um dispositivo.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @return int - Posição, ou -1 caso o dispositivo não esteja conectado.
+   */
+  public int deviceOf(String deviceId) {
+    Integer device = this.deviceIndex.get(deviceId);
+
+    return device == null ? -1 : device;
+  }
+
+  /**
+   * Retorna a posição de um tipo de sensor.
+   *
+   * @param sensorType String - Tipo do sensor.
+   * @return int - Posição, ou -1 caso nenhum dispositivo tenha o tipo.
+   */
+  public int typeOf(String sensorType) {
+    Integer type = this.typeIndex.get(sensorType);
+
+    return type == null ? -1 : type;
+  }
+
+  /**
+   * Verifica se os dois armazenamentos têm o mesmo conjunto de dispositivos.
+   *
+   * @param other DeviceColumnStore - Outro armazenamento.
+   * @return boolean
+   */
+  public boolean hasSameDevices(DeviceColumnStore other) {
+    return this.deviceIndex.keySet().equals(other.deviceIndex.keySet());
+  }
+
+  public String getDeviceId(int device) {
+    return this.deviceIds[device];
+  }
+
+  public int size() {
+    return this.deviceIds.length;
+  }
+}
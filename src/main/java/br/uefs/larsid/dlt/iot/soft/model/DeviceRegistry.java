@@ -0,0 +1,283 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import br.uefs.larsid.dlt.iot.soft.entity.Device;
+import br.uefs.larsid.dlt.iot.soft.entity.Sensor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class DeviceRegistry {
+
+  /*-------------------------Constantes---------------------------------------*/
+  private static final int HTTP_NOT_MODIFIED = 304;
+  private static final long MIN_RETRY_MILLIS = 1000;
+  private static final long MAX_RETRY_MILLIS = 30000;
+  /*--------------------------------------------------------------------------*/
+
+  private final String urlAPI;
+  private final long refreshIntervalMillis;
+  private final int timeoutMillis;
+  private final ReentrantLock refreshLock = new ReentrantLock();
+  private volatile List<Device> devices = Collections.emptyList();
+  private volatile long version;
+  private volatile long lastRefresh;
+  private volatile boolean loaded;
+  private volatile long retryAt;
+  private int failures;
+  private String eTag;
+  private String lastModified;
+  private boolean debugModeValue;
+
+  /**
+   * Método construtor.
+   *
+   * @param urlAPI String - Url da API.
+   * @param refreshIntervalMillis long - Intervalo mínimo (em milissegundos)
+   * entre as consultas à API. Zero consulta a API a cada atualização.
+   * @param timeoutMillis int - Tempo máximo (em milissegundos) da conexão
+   * com a API e de cada leitura da resposta.
+   * @param debugModeValue boolean - Modo para debugar o código.
+   */
+  public DeviceRegistry(
+    String urlAPI,
+    long refreshIntervalMillis,
+    int timeoutMillis,
+    boolean debugModeValue
+  ) {
+    this.urlAPI = urlAPI;
+    this.refreshIntervalMillis = refreshIntervalMillis;
+    this.timeoutMillis = timeoutMillis;
+    this.debugModeValue = debugModeValue;
+  }
+
+  /**
+   * Atualiza a lista de dispositivos conectados, caso o intervalo mínimo
+   * entre as consultas tenha passado. A consulta é condicional (ETag e
+   * Last-Modified) quando a API informa esses cabeçalhos; caso contrário, os
+   * dispositivos que não mudaram são reaproveitados, mantendo os valores dos
+   * seus sensores. Se outra thread já estiver atualizando a lista, a lista
+   * atual é mantida sem esperar, exceto na primeira carga. Após uma falha, a
+   * API só é consultada novamente depois de um intervalo que dobra a cada
+   * falha seguida.
+   */
+  public void refresh() {
+    if (
+      (this.loaded && !this.isExpired()) ||
+      System.currentTimeMillis() < this.retryAt
+    ) {
+      return;
+    }
+
+    if (this.loaded) {
+      if (!this.refreshLock.tryLock()) {
+        return;
+      }
+    } else {
+      this.refreshLock.lock();
+    }
+
+    try {
+      if (
+        (!this.loaded || this.isExpired()) &&
+        System.currentTimeMillis() >= this.retryAt
+      ) {
+        this.fetch();
+      }
+    } finally {
+      this.refreshLock.unlock();
+    }
+  }
+
+  /**
+   * Consulta a API e, caso a lista tenha mudado, substitui a lista atual.
+   */
+  private void fetch() {
+    try {
+      HttpURLConnection conn = ClientIotService.openConnection(
+        this.urlAPI,
+        this.timeoutMillis
+      );
+
+      if (this.eTag != null) {
+        conn.setRequestProperty("If-None-Match", this.eTag);
+      }
+
+      if (this.lastModified != null) {
+        conn.setRequestProperty("If-Modified-Since", this.lastModified);
+      }
+
+      if (conn.getResponseCode() == HTTP_NOT_MODIFIED) {
+        conn.getInputStream().close();
+        this.markRefreshed();
+        printlnDebug("Connected devices not modified.");
+
+        return;
+      }
+
+      List<Device> fetched;
+
+      try (InputStream stream = ClientIotService.openStream(conn)) {
+        fetched = ClientIotService.readDevices(stream);
+      }
+
+      this.eTag = conn.getHeaderField("ETag");
+      this.lastModified = conn.getHeaderField("Last-Modified");
+      this.merge(fetched);
+      this.markRefreshed();
+    } catch (JsonProcessingException e) {
+      e.printStackTrace();
+      printlnDebug(
+        "Verify the correct format of 'DevicesConnected' property in configuration file."
+      );
+      this.markFailed();
+    } catch (IOException | RuntimeException e) {
+      e.printStackTrace();
+      this.markFailed();
+    }
+  }
+
+  /**
+   * Substitui a lista atual, reaproveitando os dispositivos que não mudaram.
+   *
+   * @param fetched List<Device> - Dispositivos retornados pela API.
+   */
+  private void merge(List<Device> fetched) {
+    Map<String, Device> current = new HashMap<String, Device>();
+
+    for (Device device : this.devices) {
+      current.put(device.getId(), device);
+    }
+
+    List<Device> merged = new ArrayList<Device>(fetched.size());
+    boolean changed = !this.loaded || fetched.size() != this.devices.size();
+
+    for (int i = 0; i < fetched.size(); i++) {
+      Device device = fetched.get(i);
+      Device previous = current.get(device.getId());
+
+      if (previous != null && sameContent(previous, device)) {
+        merged.add(previous);
+        changed |= previous != this.devices.get(i);
+        continue;
+      }
+
+      if (device.getSensors() == null) {
+        device.setSensors(new ArrayList<Sensor>());
+      }
+
+      for (Sensor sensor : device.getSensors()) {
+        sensor.setUrlAPI(this.urlAPI);
+      }
+
+      merged.add(device);
+      changed = true;
+    }
+
+    if (changed) {
+      this.devices = Collections.unmodifiableList(merged);
+      this.version++;
+    }
+  }
+
+  /**
+   * Verifica se dois dispositivos têm a mesma descrição.
+   */
+  private static boolean sameContent(Device previous, Device device) {
+    if (
+      previous.getLatitude() != device.getLatitude() ||
+      previous.getLongitude() != device.getLongitude()
+    ) {
+      return false;
+    }
+
+    List<Sensor> sensors = device.getSensors() == null
+      ? Collections.<Sensor>emptyList()
+      : device.getSensors();
+
+    if (previous.getSensors().size() != sensors.size()) {
+      return false;
+    }
+
+    for (int i = 0; i < sensors.size(); i++) {
+      Sensor a = previous.getSensors().get(i);
+      Sensor b = sensors.get(i);
+
+      if (
+        !Objects.equals(a.getId(), b.getId()) ||
+        !Objects.equals(a.getType(), b.getType()) ||
+        a.getCollectionTime() != b.getCollectionTime() ||
+        a.getPublishingTime() != b.getPublishingTime()
+      ) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private boolean isExpired() {
+    return (
+      System.currentTimeMillis() - this.lastRefresh >= this.refreshIntervalMillis
+    );
+  }
+
+  private void markRefreshed() {
+    this.lastRefresh = System.currentTimeMillis();
+    this.loaded = true;
+    this.failures = 0;
+    this.retryAt = 0;
+  }
+
+  /**
+   * Adia a próxima consulta após uma falha, mantendo a lista atual.
+   */
+  private void markFailed() {
+    long base = Math.max(this.refreshIntervalMillis, MIN_RETRY_MILLIS);
+    long backoff = Math.min(
+      base << Math.min(this.failures, 16),
+      Math.max(base, MAX_RETRY_MILLIS)
+    );
+
+    this.failures++;
+    this.retryAt = System.currentTimeMillis() + backoff;
+
+    printlnDebug("Devices refresh failed, retrying in " + backoff + " ms.");
+  }
+
+  private void printlnDebug(String str) {
+    if (debugModeValue) {
+      System.out.println(str);
+    }
+  }
+
+  /**
+   * Retorna a lista atual de dispositivos conectados, que não é alterada
+   * pelas atualizações seguintes.
+   *
+   * @return List<Device>
+   */
+  public List<Device> getDevices() {
+    return devices;
+  }
+
+  public boolean isLoaded() {
+    return this.loaded;
+  }
+
+  /**
+   * Retorna a versão da lista, incrementada a cada alteração.
+   *
+   * @return long
+   */
+  public long getVersion() {
+    return version;
+  }
+}
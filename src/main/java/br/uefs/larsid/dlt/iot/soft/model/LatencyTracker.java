@@ -0,0 +1,264 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class LatencyTracker {
+
+  /*-------------------------Constantes---------------------------------------*/
+  /* Quantidade de latências mais recentes mantidas por nó filho. */
+  private static final int WINDOW_SIZE = 256;
+  /* Quantidade mínima de latências para que o prazo de um nó seja estimado. */
+  private static final int MIN_SAMPLES = 20;
+  /*--------------------------------------------------------------------------*/
+
+  private final Map<String, Window> windows = new ConcurrentHashMap<String, Window>();
+  private final double percentile;
+  private final long marginMillis;
+
+  /**
+   * Método construtor.
+   *
+   * @param percentile double - Percentil da latência usado no prazo, ex: 99.
+   * Zero desativa o prazo adaptativo.
+   * @param marginMillis long - Margem (em milissegundos) somada ao percentil.
+   */
+  public LatencyTracker(double percentile, long marginMillis) {
+    this.percentile = Math.min(100, percentile);
+    this.marginMillis = marginMillis;
+  }
+
+  /**
+   * Registra o tempo de resposta de um nó filho.
+   *
+   * @param nodeUri String - URI do nó filho.
+   * @param latencyMillis long - Tempo de resposta (em milissegundos).
+   */
+  public void record(String nodeUri, long latencyMillis) {
+    this.windowOf(nodeUri).add(Math.max(0, latencyMillis), false);
+  }
+
+  /**
+   * Registra um nó filho que não respondeu dentro do prazo. O tempo aguardado
+   * é registrado como latência, um limite inferior da latência real, para que
+   * o prazo do nó cresça nas próximas requisições.
+   *
+   * @param nodeUri String - URI do nó filho.
+   * @param waitedMillis long - Tempo aguardado (em milissegundos).
+   */
+  public void recordTimeout(String nodeUri, long waitedMillis) {
+    this.windowOf(nodeUri).add(Math.max(0, waitedMillis), true);
+  }
+
+  /**
+   * Calcula o prazo de agregação das respostas dos nós filhos: o maior
+   * percentil, mais a margem, entre os nós, limitado pelo tempo máximo. Nós
+   * sem histórico suficiente usam o tempo máximo.
+   *
+   * @param nodesUris Collection<String> - URIs dos nós filhos.
+   * @param timeoutMillis long - Tempo máximo de espera (em milissegundos).
+   * @return long - Prazo (em milissegundos).
+   */
+  public long deadlineFor(Collection<String> nodesUris, long timeoutMillis) {
+    if (this.percentile <= 0 || nodesUris.isEmpty()) {
+      return timeoutMillis;
+    }
+
+    long deadline = 0;
+
+    for (String nodeUri : nodesUris) {
+      Window window = this.windows.get(nodeUri);
+
+      if (window == null) {
+        return timeoutMillis;
+      }
+
+      long latency = window.percentile(this.percentile);
+
+      if (latency < 0) {
+        return timeoutMillis;
+      }
+
+      deadline = Math.max(deadline, latency + this.marginMillis);
+
+      if (deadline >= timeoutMillis) {
+        return timeoutMillis;
+      }
+    }
+
+    return deadline;
+  }
+
+  /**
+   * Retorna as estatísticas de latência de cada nó filho.
+   *
+   * @return Map<String, LatencyStats>
+   */
+  public Map<String, LatencyStats> getStats() {
+    Map<String, LatencyStats> stats = new LinkedHashMap<String, LatencyStats>();
+
+    for (Map.Entry<String, Window> entry : this.windows.entrySet()) {
+      stats.put(entry.getKey(), entry.getValue().stats());
+    }
+
+    return stats;
+  }
+
+  /**
+   * Retorna as estatísticas de latência de um nó filho.
+   *
+   * @param nodeUri String - URI do nó filho.
+   * @return LatencyStats - Estatísticas, ou null caso o nó não tenha
+   * histórico.
+   */
+  public LatencyStats getStats(String nodeUri) {
+    Window window = this.windows.get(nodeUri);
+
+    return window == null ? null : window.stats();
+  }
+
+  /**
+   * Descarta o histórico de um nó filho desconectado.
+   *
+   * @param nodeUri String - URI do nó filho.
+   */
+  public void remove(String nodeUri) {
+    this.windows.remove(nodeUri);
+  }
+
+  private Window windowOf(String nodeUri) {
+    return this.windows.computeIfAbsent(nodeUri, uri -> new Window());
+  }
+
+  /**
+   * Latências mais recentes de um nó filho, em um buffer circular.
+   */
+  private static class Window {
+
+    private final long[] samples = new long[WINDOW_SIZE];
+    private int next;
+    private int size;
+    private long responses;
+    private long timeouts;
+
+    synchronized void add(long latencyMillis, boolean timeout) {
+      this.samples[this.next] = latencyMillis;
+      this.next = (this.next + 1) % WINDOW_SIZE;
+      this.size = Math.min(this.size + 1, WINDOW_SIZE);
+
+      if (timeout) {
+        this.timeouts++;
+      } else {
+        this.responses++;
+      }
+    }
+
+    /**
+     * Retorna o percentil das latências, ou -1 caso não haja latências
+     * suficientes.
+     */
+    long percentile(double percentile) {
+      long[] sorted = this.sorted();
+
+      return sorted.length < MIN_SAMPLES ? -1 : percentileOf(sorted, percentile);
+    }
+
+    LatencyStats stats() {
+      long[] sorted = this.sorted();
+      long responsesCount;
+      long timeoutsCount;
+
+      synchronized (this) {
+        responsesCount = this.responses;
+        timeoutsCount = this.timeouts;
+      }
+
+      if (sorted.length == 0) {
+        return new LatencyStats(responsesCount, timeoutsCount, 0, 0, 0);
+      }
+
+      return new LatencyStats(
+        responsesCount,
+        timeoutsCount,
+        percentileOf(sorted, 50),
+        percentileOf(sorted, 99),
+        sorted[sorted.length - 1]
+      );
+    }
+
+    private synchronized long[] sorted() {
+      long[] sorted = Arrays.copyOf(this.samples, this.size);
+
+      Arrays.sort(sorted);
+
+      return sorted;
+    }
+
+    private static long percentileOf(long[] sorted, double percentile) {
+      int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+
+      return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+  }
+
+  /**
+   * Estatísticas de latência de um nó filho.
+   */
+  public static class LatencyStats {
+
+    private final long responses;
+    private final long timeouts;
+    private final long p50Millis;
+    private final long p99Millis;
+    private final long maxMillis;
+
+    LatencyStats(
+      long responses,
+      long timeouts,
+      long p50Millis,
+      long p99Millis,
+      long maxMillis
+    ) {
+      this.responses = responses;
+      this.timeouts = timeouts;
+      this.p50Millis = p50Millis;
+      this.p99Millis = p99Millis;
+      this.maxMillis = maxMillis;
+    }
+
+    public long getResponses() {
+      return responses;
+    }
+
+    public long getTimeouts() {
+      return timeouts;
+    }
+
+    public long getP50Millis() {
+      return p50Millis;
+    }
+
+    public long getP99Millis() {
+      return p99Millis;
+    }
+
+    public long getMaxMillis() {
+      return maxMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+        "{responses=%d, timeouts=%d, p50=%dms, p99=%dms, max=%dms}",
+        this.responses,
+        this.timeouts,
+        this.p50Millis,
+        this.p99Millis,
+        this.maxMillis
+      );
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import br.uefs.larsid.dlt.iot.soft.utils.ScoreMap;
+import br.uefs.larsid.dlt.iot.soft.utils.TopKHeap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class ParallelScorer {
+
+  private final ForkJoinPool pool;
+  private final int parallelism;
+  private final int threshold;
+
+  /**
+   * Método construtor.
+   *
+   * @param parallelism int - Quantidade de threads usadas no cálculo. Valores
+   * menores que 2 mantêm o cálculo sequencial.
+   * @param threshold int - Quantidade mínima de dispositivos para que o
+   * cálculo seja dividido entre as threads.
+   */
+  public ParallelScorer(int parallelism, int threshold) {
+    this.parallelism = parallelism;
+    this.threshold = Math.max(1, threshold);
+    this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+  }
+
+  /**
+   * Verifica se o cálculo de uma quantidade de dispositivos deve ser
+   * dividido entre as threads.
+   *
+   * @param devicesCount int - Quantidade de dispositivos.
+   * @return boolean
+   */
+  public boolean isParallel(int devicesCount) {
+    return this.pool != null && devicesCount >= this.threshold;
+  }
+
+  /**
+   * Calcula o Top-K dividindo os dispositivos em blocos. Cada bloco é
+   * pontuado com um Top-K local limitado, e os Top-K locais são mesclados.
+   *
+   * @param store DeviceColumnStore - Valores dos sensores.
+   * @param plan ScoringPlan - Plano compilado da função.
+   * @param k int - Quantidade de scores requisitados.
+   * @return ScoreMap - Top-K ordenado.
+   */
+  public ScoreMap topK(DeviceColumnStore store, ScoringPlan plan, int k) {
+    /* Blocos suficientes para balancear a carga entre as threads. */
+    int chunkSize = Math.max(
+      this.threshold / 2,
+      store.size() / (this.parallelism * 4) + 1
+    );
+
+    return this.pool.invoke(
+        new ScoringTask(store, plan, k, chunkSize, 0, store.size())
+      )
+      .toScoreMap();
+  }
+
+  /**
+   * Finaliza as threads de cálculo.
+   */
+  public void shutdown() {
+    if (this.pool != null) {
+      this.pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Calcula o Top-K local de um intervalo de dispositivos.
+   */
+  private static class ScoringTask extends RecursiveTask<TopKHeap> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final DeviceColumnStore store;
+    private final ScoringPlan plan;
+    private final int k;
+    private final int chunkSize;
+    private final int from;
+    private final int to;
+
+    ScoringTask(
+      DeviceColumnStore store,
+      ScoringPlan plan,
+      int k,
+      int chunkSize,
+      int from,
+      int to
+    ) {
+      this.store = store;
+      this.plan = plan;
+      this.k = k;
+      this.chunkSize = chunkSize;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected TopKHeap compute() {
+      if (this.to - this.from <= this.chunkSize) {
+        TopKHeap heap = new TopKHeap(Math.min(this.k, this.to - this.from));
+
+        this.store.score(this.plan, this.from, this.to, heap::offer);
+
+        return heap;
+      }
+
+      int middle = (this.from + this.to) >>> 1;
+      ScoringTask left = new ScoringTask(
+        this.store,
+        this.plan,
+        this.k,
+        this.chunkSize,
+        this.from,
+        middle
+      );
+      ScoringTask right = new ScoringTask(
+        this.store,
+        this.plan,
+        this.k,
+        this.chunkSize,
+        middle,
+        this.to
+      );
+
+      left.fork();
+
+      TopKHeap merged = new TopKHeap(this.k);
+
+      merged.merge(right.compute());
+      merged.merge(left.join());
+
+      return merged;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class QueryCoalescer {
+
+  private final Map<String, Query> queries = new ConcurrentHashMap<String, Query>();
+  private final AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * Gera a chave normalizada de uma consulta de Top-K, para que consultas
+   * equivalentes tenham a mesma chave.
+   *
+   * @param plan ScoringPlan - Plano compilado da função.
+   * @param termsCount int - Quantidade de termos da função original.
+   * @param k int - Quantidade de scores requisitados.
+   * @return String
+   */
+  public static String keyOf(ScoringPlan plan, int termsCount, int k) {
+    return plan.getKey() + "#" + termsCount + "#" + k;
+  }
+
+  /**
+   * Gera a chave de uma consulta de Top-K com uma política de quórum, para
+   * que apenas consultas com a mesma política compartilhem o resultado.
+   *
+   * @param plan ScoringPlan - Plano compilado da função.
+   * @param termsCount int - Quantidade de termos da função original.
+   * @param k int - Quantidade de scores requisitados.
+   * @param policy QuorumPolicy - Política de quórum da consulta.
+   * @return String
+   */
+  public static String keyOf(
+    ScoringPlan plan,
+    int termsCount,
+    int k,
+    QuorumPolicy policy
+  ) {
+    String key = keyOf(plan, termsCount, k);
+
+    return policy.isPartial() ? key + "#" + policy.getKey() : key;
+  }
+
+  /**
+   * Registra uma consulta em andamento, à qual as consultas idênticas que
+   * chegarem serão anexadas.
+   *
+   * @param key String - Chave da consulta.
+   * @return Query - Consulta registrada, ou null caso já exista uma consulta
+   * idêntica em andamento.
+   */
+  public Query open(String key) {
+    Query query = new Query();
+
+    return this.queries.putIfAbsent(key, query) == null ? query : null;
+  }
+
+  /**
+   * Anexa uma requisição a uma consulta idêntica em andamento, que publicará
+   * o resultado também sob o id da requisição.
+   *
+   * @param key String - Chave da consulta.
+   * @param id String - Id da requisição.
+   * @return boolean - Se existia uma consulta idêntica em andamento.
+   */
+  public boolean attach(String key, String id) {
+    Query query = this.queries.computeIfPresent(
+        key,
+        (k, pending) -> {
+          pending.followers.add(id);
+
+          return pending;
+        }
+      );
+
+    if (query == null) {
+      return false;
+    }
+
+    this.coalesced.incrementAndGet();
+
+    return true;
+  }
+
+  /**
+   * Finaliza a consulta. Novas requisições idênticas deixam de ser anexadas
+   * a ela.
+   *
+   * @param key String - Chave da consulta.
+   * @param query Query - Consulta registrada.
+   * @return List<String> - Ids das requisições anexadas, ou uma lista vazia
+   * caso a consulta já tenha sido finalizada.
+   */
+  public List<String> close(String key, Query query) {
+    /*
+     * As requisições são anexadas dentro do computeIfPresent; após a
+     * remoção, a lista não é mais alterada.
+     */
+    if (query == null || !this.queries.remove(key, query)) {
+      return Collections.emptyList();
+    }
+
+    return query.followers;
+  }
+
+  public int getPendingQueries() {
+    return this.queries.size();
+  }
+
+  public long getCoalescedRequests() {
+    return this.coalesced.get();
+  }
+
+  /**
+   * Consulta em andamento e as requisições anexadas a ela.
+   */
+  public static class Query {
+
+    private final List<String> followers = new ArrayList<String>();
+
+    private Query() {}
+  }
+}
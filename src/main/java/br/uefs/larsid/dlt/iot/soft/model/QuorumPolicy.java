@@ -0,0 +1,114 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import br.uefs.larsid.dlt.iot.soft.utils.RequestDeadline;
+import com.fasterxml.jackson.databind.JsonNode;
+
+public final class QuorumPolicy {
+
+  /*-------------------------Constantes---------------------------------------*/
+  private static final String QUORUM = "quorum";
+  private static final String BUDGET_MILLIS = "budgetMillis";
+  /*--------------------------------------------------------------------------*/
+
+  private final double fraction;
+  private final long budgetMillis;
+
+  /**
+   * Método construtor.
+   *
+   * @param fraction double - Fração dos nós filhos cujas respostas bastam
+   * para finalizar a requisição, entre 0 (exclusivo) e 1.
+   * @param budgetMillis long - Tempo máximo (em milissegundos) de espera
+   * pelas respostas. Zero mantém apenas o prazo do broker.
+   */
+  public QuorumPolicy(double fraction, long budgetMillis) {
+    this.fraction = fraction > 0 && fraction < 1 ? fraction : 1;
+    this.budgetMillis = Math.max(0, budgetMillis);
+  }
+
+  /**
+   * Lê as opções de quórum de uma requisição de Top-K (ex: "quorum": 0.95 e
+   * "budgetMillis": 500). As opções ausentes mantêm os valores padrão.
+   *
+   * @param request JsonNode - Requisição de Top-K.
+   * @param defaults QuorumPolicy - Política padrão do broker.
+   * @return QuorumPolicy
+   */
+  public static QuorumPolicy fromRequest(
+    JsonNode request,
+    QuorumPolicy defaults
+  ) {
+    JsonNode quorum = request.get(QUORUM);
+    JsonNode budget = request.get(BUDGET_MILLIS);
+
+    if (quorum == null && budget == null) {
+      return defaults;
+    }
+
+    return new QuorumPolicy(
+      quorum == null ? defaults.fraction : quorum.asDouble(defaults.fraction),
+      budget == null
+        ? defaults.budgetMillis
+        : budget.asLong(defaults.budgetMillis)
+    );
+  }
+
+  /**
+   * Verifica se a requisição pode ser finalizada antes da resposta de todos
+   * os nós filhos.
+   *
+   * @return boolean
+   */
+  public boolean isPartial() {
+    return this.fraction < 1 || this.budgetMillis > 0;
+  }
+
+  /**
+   * Calcula o instante limite da espera pelas respostas.
+   *
+   * @param start long - Instante (em milissegundos) do início da espera.
+   * @param end long - Instante limite definido pelo broker.
+   * @return long
+   */
+  public long deadline(long start, long end) {
+    return this.budgetMillis > 0
+      ? Math.min(end, start + this.budgetMillis)
+      : end;
+  }
+
+  /**
+   * Calcula o prazo explícito da requisição, definido pelo seu orçamento de
+   * latência. Ao contrário do prazo de agregação, não depende das latências
+   * observadas dos nós filhos, e é o único que pode impedir a consulta à API.
+   *
+   * @param receivedAt long - Instante (em milissegundos) da chegada da
+   * requisição.
+   * @return long - Instante limite, ou RequestDeadline.NONE caso a
+   * requisição não tenha orçamento.
+   */
+  public long requestDeadline(long receivedAt) {
+    return this.budgetMillis > 0
+      ? receivedAt + this.budgetMillis
+      : RequestDeadline.NONE;
+  }
+
+  /**
+   * Gera a chave da política, para que apenas requisições com a mesma
+   * política compartilhem o resultado.
+   *
+   * @return String
+   */
+  public String getKey() {
+    return this.isPartial()
+      ? "q" + this.fraction + "b" + this.budgetMillis
+      : "";
+  }
+
+  public double getFraction() {
+    return fraction;
+  }
+
+  public long getBudgetMillis() {
+    return budgetMillis;
+  }
+}
@@ -0,0 +1,230 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestExecutor {
+
+  /**
+   * Política aplicada quando a fila de requisições está cheia.
+   *
+   * REJECT - A nova requisição é recusada.
+   * SHED - A requisição mais antiga da fila é descartada.
+   * BLOCK - Quem submeteu a requisição aguarda espaço na fila.
+   */
+  public enum QueuePolicy {
+    REJECT,
+    SHED,
+    BLOCK;
+
+    /**
+     * Converte o valor da configuração na política correspondente.
+     *
+     * @param value String - Nome da política.
+     * @return QueuePolicy
+     */
+    public static QueuePolicy fromString(String value) {
+      try {
+        return QueuePolicy.valueOf(value.trim().toUpperCase());
+      } catch (IllegalArgumentException | NullPointerException e) {
+        return REJECT;
+      }
+    }
+  }
+
+  private final ThreadPoolExecutor executor;
+  private final QueuePolicy policy;
+  private final AtomicInteger rejected = new AtomicInteger();
+  private final AtomicInteger shed = new AtomicInteger();
+  private boolean debugModeValue;
+
+  /**
+   * Método construtor.
+   *
+   * @param name String - Prefixo do nome das threads.
+   * @param workers int - Quantidade de threads que processam as requisições.
+   * @param queueSize int - Capacidade da fila de requisições pendentes.
+   * @param policy QueuePolicy - Política para quando a fila estiver cheia.
+   * @param debugModeValue boolean - Modo para debugar o código.
+   */
+  public RequestExecutor(
+    String name,
+    int workers,
+    int queueSize,
+    QueuePolicy policy,
+    boolean debugModeValue
+  ) {
+    this.policy = policy;
+    this.debugModeValue = debugModeValue;
+
+    this.executor =
+      new ThreadPoolExecutor(
+        Math.max(1, workers),
+        Math.max(1, workers),
+        0L,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)),
+        new NamedThreadFactory(name),
+        this.rejectionHandler()
+      );
+  }
+
+  /**
+   * Submete uma requisição para ser processada, informando quem a enviou
+   * caso ela seja recusada ou descartada da fila.
+   *
+   * @param task Runnable - Tarefa que processa a requisição.
+   * @param onRejected Runnable - Tarefa que responde à requisição recusada,
+   * ou null.
+   * @return boolean - Se a requisição foi aceita.
+   */
+  public boolean submit(Runnable task, Runnable onRejected) {
+    try {
+      this.executor.execute(new Request(task, onRejected));
+
+      return true;
+    } catch (RejectedExecutionException e) {
+      this.rejected.incrementAndGet();
+      printlnDebug("Request queue is full, request rejected.");
+
+      if (onRejected != null) {
+        onRejected.run();
+      }
+
+      return false;
+    }
+  }
+
+  /**
+   * Finaliza as threads de processamento.
+   */
+  public void shutdown() {
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Retorna o tratador de requisições que não couberam na fila, de acordo com
+   * a política configurada.
+   *
+   * @return RejectedExecutionHandler
+   */
+  private RejectedExecutionHandler rejectionHandler() {
+    switch (this.policy) {
+      case SHED:
+        return (task, pool) -> {
+          if (pool.isShutdown()) {
+            throw new RejectedExecutionException("Executor is shut down.");
+          }
+
+          Runnable oldest = pool.getQueue().poll();
+
+          if (oldest != null) {
+            this.shed.incrementAndGet();
+            printlnDebug("Request queue is full, oldest request discarded.");
+
+            /* A requisição descartada recebe a mesma resposta da recusada. */
+            ((Request) oldest).reject();
+          }
+
+          pool.execute(task);
+        };
+      case BLOCK:
+        return (task, pool) -> {
+          if (pool.isShutdown()) {
+            throw new RejectedExecutionException("Executor is shut down.");
+          }
+
+          try {
+            pool.getQueue().put(task);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+          }
+        };
+      default:
+        return new ThreadPoolExecutor.AbortPolicy();
+    }
+  }
+
+  private void printlnDebug(String str) {
+    if (debugModeValue) {
+      System.out.println(str);
+    }
+  }
+
+  public QueuePolicy getPolicy() {
+    return this.policy;
+  }
+
+  public int getQueuedRequests() {
+    return this.executor.getQueue().size();
+  }
+
+  public int getRejectedRequests() {
+    return this.rejected.get();
+  }
+
+  public int getShedRequests() {
+    return this.shed.get();
+  }
+
+  /**
+   * Requisição enfileirada, com a resposta enviada caso seja descartada.
+   */
+  private static class Request implements Runnable {
+
+    private final Runnable task;
+    private final Runnable onRejected;
+
+    Request(Runnable task, Runnable onRejected) {
+      this.task = task;
+      this.onRejected = onRejected;
+    }
+
+    @Override
+    public void run() {
+      this.task.run();
+    }
+
+    void reject() {
+      if (this.onRejected == null) {
+        return;
+      }
+
+      try {
+        this.onRejected.run();
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Fábrica de threads nomeadas, para facilitar a depuração.
+   */
+  private static class NamedThreadFactory implements ThreadFactory {
+
+    private final String name;
+    private final AtomicInteger count = new AtomicInteger();
+
+    NamedThreadFactory(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(
+        runnable,
+        String.format("%s-%d", this.name, this.count.incrementAndGet())
+      );
+      thread.setDaemon(true);
+
+      return thread;
+    }
+  }
+}
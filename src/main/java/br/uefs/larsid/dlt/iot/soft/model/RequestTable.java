@@ -0,0 +1,263 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import br.uefs.larsid.dlt.iot.soft.utils.TopKHeap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class RequestTable {
+
+  private final Map<String, Request> requests = new ConcurrentHashMap<String, Request>();
+  private final int maxInFlight;
+  private final long ttlMillis;
+  private final AtomicInteger live = new AtomicInteger();
+  private final AtomicLong evicted = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong lastSweep = new AtomicLong(System.currentTimeMillis());
+  private boolean debugModeValue;
+
+  /**
+   * Método construtor.
+   *
+   * @param maxInFlight int - Quantidade máxima de requisições em andamento.
+   * @param ttlMillis long - Tempo (em milissegundos) após o qual uma
+   * requisição que não foi finalizada é descartada.
+   * @param debugModeValue boolean - Modo para debugar o código.
+   */
+  public RequestTable(int maxInFlight, long ttlMillis, boolean debugModeValue) {
+    this.maxInFlight = Math.max(1, maxInFlight);
+    this.ttlMillis = Math.max(1, ttlMillis);
+    this.debugModeValue = debugModeValue;
+  }
+
+  /**
+   * Cria o Top-K parcial de uma requisição, registrando-a caso ainda não
+   * esteja em andamento.
+   *
+   * @param id String - Id da requisição.
+   * @param k int - Quantidade de scores requisitados.
+   * @return boolean - Se a requisição foi aceita, ou recusada por exceder o
+   * limite de requisições em andamento.
+   */
+  public boolean addScores(String id, int k) {
+    TopKHeap heap = new TopKHeap(k);
+
+    return this.open(id, request -> request.scores = heap);
+  }
+
+  /**
+   * Cria o controle das respostas dos nós filhos de uma requisição,
+   * registrando-a caso ainda não esteja em andamento.
+   *
+   * @param id String - Id da requisição.
+   * @param expected int - Quantidade de respostas esperadas.
+   * @return boolean - Se a requisição foi aceita, ou recusada por exceder o
+   * limite de requisições em andamento.
+   */
+  public boolean addResponses(String id, int expected) {
+    ResponseCompletion completion = new ResponseCompletion(expected);
+
+    return this.open(id, request -> request.completion = completion);
+  }
+
+  public TopKHeap getScores(String id) {
+    Request request = this.requests.get(id);
+
+    return request == null ? null : request.scores;
+  }
+
+  public ResponseCompletion getResponses(String id) {
+    Request request = this.requests.get(id);
+
+    return request == null ? null : request.completion;
+  }
+
+  /**
+   * Remove o Top-K parcial de uma requisição. A requisição deixa a tabela
+   * quando não possui mais estado.
+   *
+   * @param id String - Id da requisição.
+   */
+  public void removeScores(String id) {
+    this.close(id, request -> request.scores = null);
+  }
+
+  /**
+   * Remove o controle das respostas de uma requisição. A requisição deixa a
+   * tabela quando não possui mais estado.
+   *
+   * @param id String - Id da requisição.
+   */
+  public void removeResponses(String id) {
+    this.close(id, request -> request.completion = null);
+  }
+
+  /**
+   * Retorna os ids das requisições em andamento.
+   *
+   * @return Set<String>
+   */
+  public Set<String> ids() {
+    return Collections.unmodifiableSet(this.requests.keySet());
+  }
+
+  /**
+   * Descarta as requisições que ultrapassaram o tempo de vida, ex: aquelas
+   * cujos nós filhos nunca responderam ou cujo processamento falhou.
+   *
+   * @return int - Quantidade de requisições descartadas.
+   */
+  public int evictExpired() {
+    long now = System.currentTimeMillis();
+    int count = 0;
+
+    this.lastSweep.set(now);
+
+    for (Map.Entry<String, Request> entry : this.requests.entrySet()) {
+      Request request = entry.getValue();
+
+      if (
+        now - request.createdAt >= this.ttlMillis &&
+        this.requests.remove(entry.getKey(), request)
+      ) {
+        this.live.decrementAndGet();
+        this.evicted.incrementAndGet();
+        count++;
+
+        printlnDebug("Orphaned request evicted: " + entry.getKey());
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Registra a requisição, caso necessário, e inicializa parte do seu
+   * estado de forma atômica.
+   */
+  private boolean open(String id, Consumer<Request> update) {
+    this.evictExpiredIfDue();
+
+    if (this.live.get() >= this.maxInFlight && !this.requests.containsKey(id)) {
+      this.evictExpired();
+    }
+
+    Request result = this.requests.compute(
+      id,
+      (key, request) -> {
+        if (request == null) {
+          if (!this.reserve()) {
+            return null;
+          }
+
+          request = new Request();
+        }
+
+        update.accept(request);
+
+        return request;
+      }
+    );
+
+    if (result == null) {
+      this.rejected.incrementAndGet();
+
+      printlnDebug("Request " + id + " rejected, too many requests in flight.");
+
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Remove parte do estado da requisição, descartando-a quando não resta
+   * nenhum estado.
+   */
+  private void close(String id, Consumer<Request> update) {
+    this.requests.computeIfPresent(
+        id,
+        (key, request) -> {
+          update.accept(request);
+
+          if (request.scores == null && request.completion == null) {
+            this.live.decrementAndGet();
+
+            return null;
+          }
+
+          return request;
+        }
+      );
+  }
+
+  /**
+   * Reserva uma vaga na tabela, sem ultrapassar o limite mesmo com
+   * registros simultâneos.
+   */
+  private boolean reserve() {
+    int current;
+
+    do {
+      current = this.live.get();
+
+      if (current >= this.maxInFlight) {
+        return false;
+      }
+    } while (!this.live.compareAndSet(current, current + 1));
+
+    return true;
+  }
+
+  /**
+   * Varre a tabela em busca de requisições expiradas, no máximo uma vez a
+   * cada metade do tempo de vida e por apenas uma thread.
+   */
+  private void evictExpiredIfDue() {
+    long now = System.currentTimeMillis();
+    long last = this.lastSweep.get();
+
+    if (
+      now - last >= this.ttlMillis / 2 &&
+      this.lastSweep.compareAndSet(last, now)
+    ) {
+      this.evictExpired();
+    }
+  }
+
+  private void printlnDebug(String str) {
+    if (debugModeValue) {
+      System.out.println(str);
+    }
+  }
+
+  public int getMaxInFlight() {
+    return this.maxInFlight;
+  }
+
+  public int getLiveRequests() {
+    return this.live.get();
+  }
+
+  public long getEvictedRequests() {
+    return this.evicted.get();
+  }
+
+  public long getRejectedRequests() {
+    return this.rejected.get();
+  }
+
+  /**
+   * Estado de uma requisição em andamento.
+   */
+  private static class Request {
+
+    private final long createdAt = System.currentTimeMillis();
+    private volatile TopKHeap scores;
+    private volatile ResponseCompletion completion;
+  }
+}
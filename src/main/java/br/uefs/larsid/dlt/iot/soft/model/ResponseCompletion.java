@@ -0,0 +1,142 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class ResponseCompletion {
+
+  private final int expected;
+  private final long createdAt = System.currentTimeMillis();
+  private int received;
+  private final Set<String> unreachableNodes = new LinkedHashSet<String>();
+  private final Set<String> respondedNodes = new LinkedHashSet<String>();
+
+  /**
+   * Método construtor.
+   *
+   * @param expected int - Quantidade de respostas esperadas dos nós filhos.
+   */
+  public ResponseCompletion(int expected) {
+    this.expected = expected;
+    this.received = 0;
+  }
+
+  /**
+   * Sinaliza a chegada de uma resposta, acordando quem estiver aguardando.
+   */
+  public synchronized void signal() {
+    this.signal(null);
+  }
+
+  /**
+   * Sinaliza a chegada da resposta de um nó filho, acordando quem estiver
+   * aguardando para que verifique o quórum. Respostas repetidas de um mesmo
+   * nó (ex: reentregas do MQTT com QoS 1) são contadas uma única vez.
+   *
+   * @param nodeUri String - URI do nó filho, ou null caso não seja
+   * informada.
+   * @return boolean - Se a resposta foi contada, ou false caso o nó já
+   * tenha respondido.
+   */
+  public synchronized boolean signal(String nodeUri) {
+    if (nodeUri != null && !this.respondedNodes.add(nodeUri)) {
+      return false;
+    }
+
+    this.received++;
+    this.notifyAll();
+
+    return true;
+  }
+
+  /**
+   * Desconta um nó filho que não recebeu a requisição, deixando de aguardar
+   * a sua resposta.
+   *
+   * @param nodeUri String - URI do nó filho.
+   */
+  public synchronized void discount(String nodeUri) {
+    if (this.unreachableNodes.add(nodeUri)) {
+      this.notifyAll();
+    }
+  }
+
+  /**
+   * Aguarda, sem consumir CPU, até que todas as respostas cheguem ou até que
+   * o prazo seja atingido.
+   *
+   * @param deadline long - Instante limite (em milissegundos) da espera.
+   * @return boolean - Se todas as respostas foram recebidas.
+   * @throws InterruptedException
+   */
+  public synchronized boolean await(long deadline)
+    throws InterruptedException {
+    return this.await(deadline, 1);
+  }
+
+  /**
+   * Aguarda, sem consumir CPU, até que a fração informada das respostas
+   * chegue ou até que o prazo seja atingido.
+   *
+   * @param deadline long - Instante limite (em milissegundos) da espera.
+   * @param quorum double - Fração das respostas esperadas que basta para
+   * finalizar a espera, entre 0 e 1.
+   * @return boolean - Se o quórum foi atingido.
+   * @throws InterruptedException
+   */
+  public synchronized boolean await(long deadline, double quorum)
+    throws InterruptedException {
+    long remaining = deadline - System.currentTimeMillis();
+
+    while (!this.hasQuorum(quorum) && remaining > 0) {
+      this.wait(remaining);
+      remaining = deadline - System.currentTimeMillis();
+    }
+
+    return this.hasQuorum(quorum);
+  }
+
+  /**
+   * Verifica se todas as respostas esperadas foram recebidas.
+   *
+   * @return boolean
+   */
+  public synchronized boolean isComplete() {
+    return this.hasQuorum(1);
+  }
+
+  /**
+   * Verifica se a fração informada das respostas esperadas, desconsiderando
+   * os nós que não receberam a requisição, foi recebida. Cada nó filho conta
+   * uma única vez.
+   *
+   * @param quorum double - Fração das respostas esperadas, entre 0 e 1.
+   * @return boolean
+   */
+  public synchronized boolean hasQuorum(double quorum) {
+    int reachable = this.expected - this.unreachableNodes.size();
+
+    /* Tolera o erro de arredondamento, ex: 0.7 * 10 = 7.000000000000001. */
+    return this.received >= Math.ceil(quorum * reachable - 1e-9);
+  }
+
+  public int getExpected() {
+    return this.expected;
+  }
+
+  public long getCreatedAt() {
+    return this.createdAt;
+  }
+
+  public synchronized int getReceived() {
+    return this.received;
+  }
+
+  public synchronized Set<String> getUnreachableNodes() {
+    return new LinkedHashSet<String>(this.unreachableNodes);
+  }
+
+  public synchronized Set<String> getRespondedNodes() {
+    return new LinkedHashSet<String>(this.respondedNodes);
+  }
+}
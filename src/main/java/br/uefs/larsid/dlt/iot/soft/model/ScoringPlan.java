@@ -0,0 +1,168 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class ScoringPlan {
+
+  /*-------------------------Constantes---------------------------------------*/
+  /* Quantidade máxima de planos compilados mantidos em memória. */
+  private static final int MAX_CACHED_PLANS = 64;
+  /*--------------------------------------------------------------------------*/
+
+  private static final Map<String, ScoringPlan> PLANS = new LinkedHashMap<String, ScoringPlan>(
+    16,
+    0.75f,
+    true
+  ) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, ScoringPlan> eldest) {
+      return size() > MAX_CACHED_PLANS;
+    }
+  };
+
+  private final String key;
+  private final List<String> sensorTypes;
+  private final Map<String, Integer> slots;
+  private final int[] weights;
+  private final int sumWeight;
+
+  /**
+   * Método construtor.
+   *
+   * @param key String - Chave normalizada da função.
+   * @param terms Map<String, Integer> - Peso de cada tipo de sensor.
+   */
+  private ScoringPlan(String key, Map<String, Integer> terms) {
+    Map<String, Integer> slotsTemp = new HashMap<String, Integer>();
+    int sum = 0;
+    int i = 0;
+
+    this.key = key;
+    this.weights = new int[terms.size()];
+
+    for (Map.Entry<String, Integer> term : terms.entrySet()) {
+      this.weights[i] = term.getValue();
+      slotsTemp.put(term.getKey(), i);
+      sum += term.getValue();
+      i++;
+    }
+
+    this.sensorTypes =
+      Collections.unmodifiableList(new ArrayList<String>(terms.keySet()));
+    this.slots = Collections.unmodifiableMap(slotsTemp);
+    this.sumWeight = sum;
+  }
+
+  /**
+   * Compila a função de cálculo do Top-K, reaproveitando o plano de uma
+   * função equivalente já compilada. Termos repetidos do mesmo tipo de sensor
+   * têm os pesos somados, o que não altera o score.
+   *
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @return ScoringPlan
+   */
+  public static ScoringPlan compile(ArrayNode functionHealth) {
+    Map<String, Integer> terms = new TreeMap<String, Integer>();
+
+    for (int i = 0; i < functionHealth.size(); i++) {
+      JsonNode term = functionHealth.get(i);
+
+      terms.merge(
+        term.get("sensor").asText(),
+        term.get("weight").asInt(),
+        Integer::sum
+      );
+    }
+
+    String key = normalize(terms);
+
+    synchronized (PLANS) {
+      ScoringPlan plan = PLANS.get(key);
+
+      if (plan == null) {
+        plan = new ScoringPlan(key, terms);
+        PLANS.put(key, plan);
+      }
+
+      return plan;
+    }
+  }
+
+  /**
+   * Gera a chave normalizada dos termos, para que funções equivalentes tenham
+   * a mesma chave. Ex: "sensorType1:2,sensorType2:1".
+   *
+   * @param terms Map<String, Integer> - Termos ordenados pelo tipo de sensor.
+   * @return String
+   */
+  private static String normalize(Map<String, Integer> terms) {
+    StringBuilder key = new StringBuilder();
+
+    for (Map.Entry<String, Integer> term : terms.entrySet()) {
+      if (key.length() > 0) {
+        key.append(',');
+      }
+
+      key.append(term.getKey()).append(':').append(term.getValue());
+    }
+
+    return key.toString();
+  }
+
+  /**
+   * Calcula o score a partir dos valores dos termos.
+   *
+   * @param values int[] - Valor de cada termo, na ordem do plano.
+   * @return int
+   */
+  public int score(int[] values) {
+    int score = 0;
+
+    for (int i = 0; i < this.weights.length; i++) {
+      score += values[i] * this.weights[i];
+    }
+
+    return score / this.sumWeight;
+  }
+
+  /**
+   * Retorna a posição de um tipo de sensor no plano.
+   *
+   * @param sensorType String - Tipo do sensor.
+   * @return int - Posição, ou -1 caso a função não use o tipo de sensor.
+   */
+  public int slotOf(String sensorType) {
+    Integer slot = this.slots.get(sensorType);
+
+    return slot == null ? -1 : slot;
+  }
+
+  public int weightAt(int slot) {
+    return this.weights[slot];
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public List<String> getSensorTypes() {
+    return sensorTypes;
+  }
+
+  public int size() {
+    return this.weights.length;
+  }
+
+  public int getSumWeight() {
+    return sumWeight;
+  }
+}
@@ -0,0 +1,303 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import br.uefs.larsid.dlt.iot.soft.entity.Sensor;
+import br.uefs.larsid.dlt.iot.soft.services.SensorValueListener;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SensorValueCache {
+
+  /*-------------------------Constantes---------------------------------------*/
+  /* Intervalo em que uma entrada acessada continua sendo considerada quente. */
+  private static final long HOT_WINDOW_MILLIS = 60000;
+  /*--------------------------------------------------------------------------*/
+
+  private final Map<String, CachedValue> entries;
+  private final long maxStalenessMillis;
+  private final long refreshIntervalMillis;
+  private final int timeoutMillis;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private ScheduledExecutorService refresher;
+  private SensorValueListener listener;
+  private boolean debugModeValue;
+
+  /**
+   * Método construtor.
+   *
+   * @param maxEntries int - Quantidade máxima de valores armazenados.
+   * @param maxStalenessMillis long - Idade máxima (em milissegundos) de um
+   * valor armazenado.
+   * @param refreshIntervalMillis long - Intervalo (em milissegundos) entre as
+   * atualizações em segundo plano. Zero desativa as atualizações.
+   * @param timeoutMillis int - Tempo máximo (em milissegundos) de cada
+   * consulta à API nas atualizações em segundo plano.
+   * @param debugModeValue boolean - Modo para debugar o código.
+   */
+  public SensorValueCache(
+    int maxEntries,
+    long maxStalenessMillis,
+    long refreshIntervalMillis,
+    int timeoutMillis,
+    boolean debugModeValue
+  ) {
+    this.maxStalenessMillis = maxStalenessMillis;
+    this.refreshIntervalMillis = refreshIntervalMillis;
+    this.timeoutMillis = timeoutMillis;
+    this.debugModeValue = debugModeValue;
+    this.entries =
+      new LinkedHashMap<String, CachedValue>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+          Map.Entry<String, CachedValue> eldest
+        ) {
+          return size() > maxEntries;
+        }
+      };
+  }
+
+  /**
+   * Inicia a atualização em segundo plano dos valores quentes.
+   */
+  public void start() {
+    if (this.refreshIntervalMillis <= 0) {
+      return;
+    }
+
+    this.refresher =
+      Executors.newSingleThreadScheduledExecutor(
+        runnable -> {
+          Thread thread = new Thread(runnable, "fog-broker-sensor-cache");
+          thread.setDaemon(true);
+
+          return thread;
+        }
+      );
+
+    this.refresher.scheduleWithFixedDelay(
+        this::refresh,
+        this.refreshIntervalMillis,
+        this.refreshIntervalMillis,
+        TimeUnit.MILLISECONDS
+      );
+  }
+
+  /**
+   * Finaliza a atualização em segundo plano.
+   */
+  public void stop() {
+    if (this.refresher != null) {
+      this.refresher.shutdownNow();
+    }
+  }
+
+  /**
+   * Atribui ao sensor o valor armazenado, caso ainda esteja atual.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param sensor Sensor - Sensor que receberá o valor.
+   * @return boolean - Se o valor armazenado estava atual.
+   */
+  public boolean load(String deviceId, Sensor sensor) {
+    long now = System.currentTimeMillis();
+    CachedValue entry;
+
+    synchronized (this.entries) {
+      entry = this.entries.get(key(deviceId, sensor.getId()));
+    }
+
+    if (entry != null && entry.isFresh(now)) {
+      entry.lastAccess = now;
+      sensor.setValue(entry.value);
+      this.hits.incrementAndGet();
+
+      return true;
+    }
+
+    this.misses.incrementAndGet();
+
+    return false;
+  }
+
+  /**
+   * Armazena o valor atual de um sensor. O tempo em que o valor permanece
+   * atual é o período de publicação do sensor (publishing_time, ou
+   * collection_time na sua ausência), limitado pela idade máxima configurada.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param sensor Sensor - Sensor com o valor atualizado.
+   */
+  public void store(String deviceId, Sensor sensor) {
+    long now = System.currentTimeMillis();
+    CachedValue entry = new CachedValue(
+      deviceId,
+      sensor.getId(),
+      sensor.getUrlAPI(),
+      this.freshnessOf(sensor)
+    );
+
+    entry.value = sensor.getValue();
+    entry.fetchedAt = now;
+    entry.lastAccess = now;
+
+    CachedValue previous;
+
+    synchronized (this.entries) {
+      previous = this.entries.put(key(deviceId, sensor.getId()), entry);
+    }
+
+    if (previous == null || previous.value != entry.value) {
+      this.notifyChange(entry);
+    }
+  }
+
+  /**
+   * Atualiza os valores quentes que estão prestes a expirar.
+   */
+  private void refresh() {
+    long now = System.currentTimeMillis();
+    List<CachedValue> expiring = new ArrayList<CachedValue>();
+
+    synchronized (this.entries) {
+      for (CachedValue entry : this.entries.values()) {
+        boolean hot = now - entry.lastAccess <= HOT_WINDOW_MILLIS;
+        boolean expiringSoon = !entry.isFresh(
+          now + this.refreshIntervalMillis
+        );
+
+        if (hot && expiringSoon) {
+          expiring.add(entry);
+        }
+      }
+    }
+
+    for (CachedValue entry : expiring) {
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      }
+
+      try {
+        int value = ClientIotService.getSensorValue(
+          entry.urlAPI,
+          entry.deviceId,
+          entry.sensorId,
+          this.timeoutMillis
+        );
+        boolean changed = value != entry.value;
+
+        entry.value = value;
+        entry.fetchedAt = System.currentTimeMillis();
+
+        if (changed) {
+          this.notifyChange(entry);
+        }
+      } catch (RuntimeException e) {
+        printlnDebug(e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Calcula por quanto tempo o valor de um sensor permanece atual.
+   *
+   * @param sensor Sensor - Sensor.
+   * @return long - Tempo em milissegundos.
+   */
+  private long freshnessOf(Sensor sensor) {
+    long period = sensor.getPublishingTime() > 0
+      ? sensor.getPublishingTime()
+      : sensor.getCollectionTime();
+
+    if (period <= 0) {
+      return this.maxStalenessMillis;
+    }
+
+    return Math.min(period, this.maxStalenessMillis);
+  }
+
+  /**
+   * Notifica a alteração do valor de um sensor.
+   *
+   * @param entry CachedValue - Valor alterado.
+   */
+  private void notifyChange(CachedValue entry) {
+    if (this.listener != null) {
+      this.listener.valueChanged(entry.deviceId, entry.sensorId, entry.value);
+    }
+  }
+
+  private static String key(String deviceId, String sensorId) {
+    return deviceId + "/" + sensorId;
+  }
+
+  private void printlnDebug(String str) {
+    if (debugModeValue) {
+      System.out.println(str);
+    }
+  }
+
+  public long getHitCount() {
+    return this.hits.get();
+  }
+
+  public long getMissCount() {
+    return this.misses.get();
+  }
+
+  /**
+   * Retorna a proporção de leituras atendidas pelos valores armazenados.
+   *
+   * @return double
+   */
+  public double getHitRatio() {
+    long total = this.hits.get() + this.misses.get();
+
+    return total == 0 ? 0 : (double) this.hits.get() / total;
+  }
+
+  public void setListener(SensorValueListener listener) {
+    this.listener = listener;
+  }
+
+  public int size() {
+    synchronized (this.entries) {
+      return this.entries.size();
+    }
+  }
+
+  /**
+   * Valor armazenado de um sensor.
+   */
+  private static class CachedValue {
+
+    private final String deviceId;
+    private final String sensorId;
+    private final String urlAPI;
+    private final long freshnessMillis;
+    private volatile int value;
+    private volatile long fetchedAt;
+    private volatile long lastAccess;
+
+    CachedValue(
+      String deviceId,
+      String sensorId,
+      String urlAPI,
+      long freshnessMillis
+    ) {
+      this.deviceId = deviceId;
+      this.sensorId = sensorId;
+      this.urlAPI = urlAPI;
+      this.freshnessMillis = freshnessMillis;
+    }
+
+    boolean isFresh(long now) {
+      return now - this.fetchedAt < this.freshnessMillis;
+    }
+  }
+}
@@ -0,0 +1,270 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import br.uefs.larsid.dlt.iot.soft.entity.Device;
+import br.uefs.larsid.dlt.iot.soft.entity.Sensor;
+import br.uefs.larsid.dlt.iot.soft.services.SensorValueListener;
+import br.uefs.larsid.dlt.iot.soft.utils.RequestDeadline;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class SensorValueLoader {
+
+  private final ExecutorService executor;
+  private final int batchSize;
+  private final SensorValueCache cache;
+  private final int timeoutMillis;
+  private SensorValueListener listener;
+  private boolean debugModeValue;
+
+  /**
+   * Método construtor.
+   *
+   * @param parallelism int - Quantidade máxima de lotes buscados ao mesmo
+   * tempo.
+   * @param batchSize int - Quantidade de dispositivos por lote.
+   * @param cache SensorValueCache - Valores recentes dos sensores.
+   * @param timeoutMillis int - Tempo máximo (em milissegundos) da conexão com
+   * a API e de cada leitura da resposta.
+   * @param debugModeValue boolean - Modo para debugar o código.
+   */
+  public SensorValueLoader(
+    int parallelism,
+    int batchSize,
+    SensorValueCache cache,
+    int timeoutMillis,
+    boolean debugModeValue
+  ) {
+    this.batchSize = Math.max(1, batchSize);
+    this.cache = cache;
+    this.timeoutMillis = timeoutMillis;
+    this.debugModeValue = debugModeValue;
+    this.executor =
+      Executors.newFixedThreadPool(
+        Math.max(1, parallelism),
+        runnable -> {
+          Thread thread = new Thread(runnable, "fog-broker-sensor-loader");
+          thread.setDaemon(true);
+
+          return thread;
+        }
+      );
+  }
+
+  /**
+   * Atualiza, em lotes buscados em paralelo, os valores dos sensores
+   * necessários de todos os dispositivos, reaproveitando os valores
+   * armazenados que ainda estão atuais. Os dispositivos cujo lote falhou ou
+   * não terminou dentro do prazo são atualizados individualmente.
+   *
+   * @param devices List<Device> - Dispositivos que terão os sensores
+   * atualizados.
+   * @param sensorTypes Collection<String> - Tipos de sensores necessários.
+   * @param timeoutMillis long - Tempo máximo de espera pelos lotes.
+   */
+  public void loadValues(
+    List<Device> devices,
+    Collection<String> sensorTypes,
+    long timeoutMillis
+  ) {
+    this.loadValues(devices, sensorTypes, timeoutMillis, RequestDeadline.NONE);
+  }
+
+  /**
+   * Atualiza os valores dos sensores necessários de todos os dispositivos
+   * sem ultrapassar o prazo da requisição. Os dispositivos que não forem
+   * atualizados até o prazo mantêm os últimos valores conhecidos.
+   *
+   * @param devices List<Device> - Dispositivos que terão os sensores
+   * atualizados.
+   * @param sensorTypes Collection<String> - Tipos de sensores necessários.
+   * @param timeoutMillis long - Tempo máximo de espera pelos lotes.
+   * @param deadline long - Instante limite da requisição.
+   */
+  public void loadValues(
+    List<Device> devices,
+    Collection<String> sensorTypes,
+    long timeoutMillis,
+    long deadline
+  ) {
+    List<List<Device>> batches = new ArrayList<List<Device>>();
+    List<Future<List<Device>>> futures = new ArrayList<Future<List<Device>>>();
+
+    for (int i = 0; i < devices.size(); i += this.batchSize) {
+      List<Device> batch = devices.subList(
+        i,
+        Math.min(i + this.batchSize, devices.size())
+      );
+
+      batches.add(batch);
+      futures.add(this.executor.submit(() -> loadBatch(batch, sensorTypes)));
+    }
+
+    long end = Math.min(System.currentTimeMillis() + timeoutMillis, deadline);
+    List<Device> pending = new ArrayList<Device>();
+
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        long remaining = Math.max(0, end - System.currentTimeMillis());
+
+        pending.addAll(futures.get(i).get(remaining, TimeUnit.MILLISECONDS));
+      } catch (TimeoutException | ExecutionException e) {
+        futures.get(i).cancel(true);
+        pending.addAll(batches.get(i));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+
+    if (!pending.isEmpty()) {
+      printlnDebug(
+        String.format(
+          "Falling back to individual requests for %d devices.",
+          pending.size()
+        )
+      );
+
+      for (Device device : pending) {
+        if (RequestDeadline.isExpired(deadline)) {
+          printlnDebug("Deadline reached, keeping the last known values.");
+          break;
+        }
+
+        loadDevice(device, sensorTypes);
+      }
+    }
+  }
+
+  /**
+   * Finaliza as threads de busca.
+   */
+  public void shutdown() {
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Atualiza os sensores de um lote de dispositivos.
+   *
+   * @param batch List<Device> - Lote de dispositivos.
+   * @param sensorTypes Collection<String> - Tipos de sensores necessários.
+   * @return List<Device> - Dispositivos que não puderam ser atualizados.
+   */
+  private List<Device> loadBatch(
+    List<Device> batch,
+    Collection<String> sensorTypes
+  ) {
+    List<Device> failed = new ArrayList<Device>();
+
+    for (Device device : batch) {
+      if (Thread.currentThread().isInterrupted()) {
+        break;
+      }
+
+      try {
+        fetchDevice(device, sensorTypes);
+      } catch (RuntimeException e) {
+        failed.add(device);
+      }
+    }
+
+    return failed;
+  }
+
+  /**
+   * Atualiza individualmente os sensores de um dispositivo, mantendo o
+   * último valor conhecido dos que não puderem ser lidos.
+   *
+   * @param device Device - Dispositivo.
+   * @param sensorTypes Collection<String> - Tipos de sensores necessários.
+   */
+  private void loadDevice(
+    Device device,
+    Collection<String> sensorTypes
+  ) {
+    for (String sensorType : sensorTypes) {
+      Sensor sensor = device.getSensorBySensorType(sensorType);
+
+      if (sensor == null) {
+        continue;
+      }
+
+      try {
+        this.fetchSensor(device.getId(), sensor);
+      } catch (RuntimeException e) {
+        printlnDebug(
+          String.format(
+            "Keeping the last known value of sensor %s: %s",
+            sensor.getId(),
+            e.getMessage()
+          )
+        );
+        this.notifyLoaded(device.getId(), sensor);
+      }
+    }
+  }
+
+  /**
+   * Busca os valores dos sensores necessários de um dispositivo.
+   *
+   * @param device Device - Dispositivo.
+   * @param sensorTypes Collection<String> - Tipos de sensores necessários.
+   */
+  private void fetchDevice(
+    Device device,
+    Collection<String> sensorTypes
+  ) {
+    for (String sensorType : sensorTypes) {
+      Sensor sensor = device.getSensorBySensorType(sensorType);
+
+      if (sensor != null) {
+        this.fetchSensor(device.getId(), sensor);
+      }
+    }
+  }
+
+  /**
+   * Atribui ao sensor o valor armazenado, caso ainda esteja atual, ou busca o
+   * valor na API.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param sensor Sensor - Sensor.
+   */
+  private void fetchSensor(String deviceId, Sensor sensor) {
+    if (!this.cache.load(deviceId, sensor)) {
+      sensor.getValue(deviceId, this.timeoutMillis);
+      this.cache.store(deviceId, sensor);
+    }
+
+    this.notifyLoaded(deviceId, sensor);
+  }
+
+  /**
+   * Informa o valor carregado de um sensor, mesmo que não tenha sido
+   * alterado.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param sensor Sensor - Sensor carregado.
+   */
+  private void notifyLoaded(String deviceId, Sensor sensor) {
+    if (this.listener != null) {
+      this.listener.valueChanged(deviceId, sensor.getId(), sensor.getValue());
+    }
+  }
+
+  public void setListener(SensorValueListener listener) {
+    this.listener = listener;
+  }
+
+  private void printlnDebug(String str) {
+    if (debugModeValue) {
+      System.out.println(str);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import br.uefs.larsid.dlt.iot.soft.services.SensorValueListener;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SensorValueTable {
+
+  private final Map<String, Map<String, Integer>> values = new ConcurrentHashMap<String, Map<String, Integer>>();
+  private SensorValueListener listener;
+
+  /**
+   * Atualiza o valor mais recente publicado por um sensor.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param sensorId String - Id do sensor.
+   * @param value int - Valor publicado.
+   */
+  public void update(String deviceId, String sensorId, int value) {
+    Integer previous =
+      this.values.computeIfAbsent(
+          deviceId,
+          id -> new ConcurrentHashMap<String, Integer>()
+        )
+        .put(sensorId, value);
+
+    if (this.listener != null && (previous == null || previous != value)) {
+      this.listener.valueChanged(deviceId, sensorId, value);
+    }
+  }
+
+  /**
+   * Retorna o valor mais recente publicado por um sensor.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param sensorId String - Id do sensor.
+   * @return Integer - Valor do sensor, ou null caso nunca tenha publicado.
+   */
+  public Integer get(String deviceId, String sensorId) {
+    Map<String, Integer> sensors = this.values.get(deviceId);
+
+    return sensors == null ? null : sensors.get(sensorId);
+  }
+
+  /**
+   * Remove os valores de um dispositivo.
+   *
+   * @param deviceId String - Id do dispositivo.
+   */
+  public void remove(String deviceId) {
+    this.values.remove(deviceId);
+  }
+
+  /**
+   * Retorna a quantidade de dispositivos com valores publicados.
+   *
+   * @return int
+   */
+  public int size() {
+    return this.values.size();
+  }
+
+  public void setListener(SensorValueListener listener) {
+    this.listener = listener;
+  }
+}
@@ -0,0 +1,276 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import br.uefs.larsid.dlt.iot.soft.utils.ScoreMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+public class TopKIndex {
+
+  private final int maxFunctions;
+  private final long ttlMillis;
+  private final Map<String, FunctionIndex> indexes;
+  private final Map<String, Long> candidates;
+
+  /**
+   * Método construtor.
+   *
+   * @param maxFunctions int - Quantidade máxima de funções indexadas.
+   * @param ttlMillis long - Tempo (em milissegundos) que uma função sem
+   * requisições permanece indexada.
+   */
+  public TopKIndex(int maxFunctions, long ttlMillis) {
+    this.maxFunctions = maxFunctions;
+    this.ttlMillis = ttlMillis;
+    this.indexes =
+      new LinkedHashMap<String, FunctionIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+          Map.Entry<String, FunctionIndex> eldest
+        ) {
+          return size() > maxFunctions;
+        }
+      };
+    this.candidates =
+      new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+          return size() > maxFunctions * 4;
+        }
+      };
+  }
+
+  /**
+   * Retorna os k maiores scores de uma função indexada.
+   *
+   * @param key String - Chave normalizada da função.
+   * @param k int - Quantidade de scores requisitados.
+   * @return ScoreMap - Top-K ordenado, ou null caso a função não esteja
+   * indexada.
+   */
+  public ScoreMap topK(String key, int k) {
+    FunctionIndex index;
+
+    synchronized (this.indexes) {
+      index = this.indexes.get(key);
+
+      if (index != null && index.isExpired(this.ttlMillis)) {
+        this.indexes.remove(key);
+        index = null;
+      }
+    }
+
+    return index == null ? null : index.topK(k);
+  }
+
+  /**
+   * Verifica se uma função está indexada.
+   *
+   * @param key String - Chave normalizada da função.
+   * @return boolean
+   */
+  public boolean contains(String key) {
+    synchronized (this.indexes) {
+      FunctionIndex index = this.indexes.get(key);
+
+      return index != null && !index.isExpired(this.ttlMillis);
+    }
+  }
+
+  /**
+   * Registra uma requisição de uma função não indexada e informa se ela já
+   * foi requisitada recentemente, devendo passar a ser indexada.
+   *
+   * @param key String - Chave normalizada da função.
+   * @return boolean
+   */
+  public boolean shouldIndex(String key) {
+    if (this.maxFunctions <= 0) {
+      return false;
+    }
+
+    long now = System.currentTimeMillis();
+
+    synchronized (this.candidates) {
+      Long lastRequest = this.candidates.put(key, now);
+
+      return lastRequest != null && now - lastRequest <= this.ttlMillis;
+    }
+  }
+
+  /**
+   * Indexa uma função a partir dos valores atuais dos sensores dos
+   * dispositivos.
+   *
+   * @param plan ScoringPlan - Plano compilado da função.
+   * @param store DeviceColumnStore - Valores atualizados dos sensores.
+   */
+  public void index(ScoringPlan plan, DeviceColumnStore store) {
+    String key = plan.getKey();
+    FunctionIndex index = new FunctionIndex(plan);
+
+    /*
+     * A função é registrada antes da leitura dos valores, com o índice
+     * bloqueado: as alterações recebidas durante a indexação aguardam o fim
+     * da leitura e são aplicadas em seguida, em vez de se perderem.
+     */
+    synchronized (index) {
+      synchronized (this.indexes) {
+        this.indexes.put(key, index);
+      }
+
+      for (int d = 0; d < store.size(); d++) {
+        int[] deviceValues = new int[plan.size()];
+
+        store.readValues(plan, d, deviceValues);
+        index.addDevice(store.getDeviceId(d), deviceValues);
+      }
+    }
+
+    synchronized (this.candidates) {
+      this.candidates.remove(key);
+    }
+  }
+
+  /**
+   * Atualiza o score do dispositivo em todas as funções indexadas que usam o
+   * tipo de sensor alterado.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param sensorType String - Tipo do sensor alterado.
+   * @param value int - Novo valor do sensor.
+   */
+  public void valueChanged(String deviceId, String sensorType, int value) {
+    List<FunctionIndex> affected = new ArrayList<FunctionIndex>();
+
+    synchronized (this.indexes) {
+      Iterator<FunctionIndex> iterator = this.indexes.values().iterator();
+
+      while (iterator.hasNext()) {
+        FunctionIndex index = iterator.next();
+
+        if (index.isExpired(this.ttlMillis)) {
+          iterator.remove();
+        } else if (index.uses(sensorType)) {
+          affected.add(index);
+        }
+      }
+    }
+
+    for (FunctionIndex index : affected) {
+      index.update(deviceId, sensorType, value);
+    }
+  }
+
+  /**
+   * Descarta todas as funções indexadas, ex: quando o conjunto de
+   * dispositivos muda.
+   */
+  public void clear() {
+    synchronized (this.indexes) {
+      this.indexes.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (this.indexes) {
+      return this.indexes.size();
+    }
+  }
+
+  /**
+   * Scores de todos os dispositivos para uma função, ordenados do maior para
+   * o menor.
+   */
+  private static class FunctionIndex {
+
+    private static final Comparator<ScoreEntry> ORDER = Comparator
+      .comparingInt((ScoreEntry entry) -> -entry.score)
+      .thenComparing(entry -> entry.deviceId);
+
+    private final ScoringPlan plan;
+    private final Map<String, int[]> values = new HashMap<String, int[]>();
+    private final Map<String, ScoreEntry> entries = new HashMap<String, ScoreEntry>();
+    private final TreeSet<ScoreEntry> ranking = new TreeSet<ScoreEntry>(ORDER);
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    FunctionIndex(ScoringPlan plan) {
+      this.plan = plan;
+    }
+
+    boolean uses(String sensorType) {
+      return this.plan.slotOf(sensorType) >= 0;
+    }
+
+    boolean isExpired(long ttlMillis) {
+      return System.currentTimeMillis() - this.lastAccess > ttlMillis;
+    }
+
+    synchronized void addDevice(String deviceId, int[] deviceValues) {
+      this.values.put(deviceId, deviceValues);
+      this.rank(deviceId, deviceValues);
+    }
+
+    synchronized void update(String deviceId, String sensorType, int value) {
+      int[] deviceValues = this.values.get(deviceId);
+
+      /* Dispositivos desconhecidos entram no índice na próxima indexação. */
+      if (deviceValues == null) {
+        return;
+      }
+
+      deviceValues[this.plan.slotOf(sensorType)] = value;
+      this.rank(deviceId, deviceValues);
+    }
+
+    synchronized ScoreMap topK(int k) {
+      this.lastAccess = System.currentTimeMillis();
+
+      ScoreMap topK = new ScoreMap(Math.min(k, this.ranking.size()));
+
+      for (ScoreEntry entry : this.ranking) {
+        if (topK.size() >= k) {
+          break;
+        }
+
+        topK.put(entry.deviceId, entry.score);
+      }
+
+      return topK;
+    }
+
+    private void rank(String deviceId, int[] deviceValues) {
+      if (this.plan.getSumWeight() == 0) {
+        return;
+      }
+
+      ScoreEntry entry = new ScoreEntry(deviceId, this.plan.score(deviceValues));
+      ScoreEntry previous = this.entries.put(deviceId, entry);
+
+      if (previous != null) {
+        this.ranking.remove(previous);
+      }
+
+      this.ranking.add(entry);
+    }
+  }
+
+  /**
+   * Score de um dispositivo.
+   */
+  private static class ScoreEntry {
+
+    private final String deviceId;
+    private final int score;
+
+    ScoreEntry(String deviceId, int score) {
+      this.deviceId = deviceId;
+      this.score = score;
+    }
+  }
+}
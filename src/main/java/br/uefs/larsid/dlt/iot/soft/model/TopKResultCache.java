@@ -0,0 +1,243 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import br.uefs.larsid.dlt.iot.soft.utils.ScoreMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TopKResultCache {
+
+  private final Map<String, CachedResult> entries;
+  private final Map<String, AtomicLong> typeVersions = new ConcurrentHashMap<String, AtomicLong>();
+  private final AtomicLong devicesVersion = new AtomicLong();
+  private final int maxEntries;
+  private final long maxAgeMillis;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Método construtor.
+   *
+   * @param maxEntries int - Quantidade máxima de resultados armazenados.
+   * @param maxAgeMillis long - Idade máxima (em milissegundos) de um
+   * resultado armazenado. Zero desativa o cache.
+   */
+  public TopKResultCache(int maxEntries, long maxAgeMillis) {
+    this.maxEntries = maxEntries;
+    this.maxAgeMillis = maxAgeMillis;
+    this.entries =
+      new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+          Map.Entry<String, CachedResult> eldest
+        ) {
+          return size() > maxEntries;
+        }
+      };
+  }
+
+  public boolean isEnabled() {
+    return this.maxEntries > 0 && this.maxAgeMillis > 0;
+  }
+
+  /**
+   * Registra a versão atual dos dispositivos e dos tipos de sensores usados
+   * pela função. Deve ser obtida antes da leitura dos dispositivos e dos
+   * valores usados no cálculo, para que qualquer alteração feita durante o
+   * cálculo invalide o resultado.
+   *
+   * @param plan ScoringPlan - Plano compilado da função.
+   * @return long[]
+   */
+  public long[] stamp(ScoringPlan plan) {
+    List<String> sensorTypes = plan.getSensorTypes();
+    long[] stamp = new long[sensorTypes.size() + 1];
+
+    stamp[0] = this.devicesVersion.get();
+
+    for (int i = 0; i < sensorTypes.size(); i++) {
+      stamp[i + 1] = this.versionOf(sensorTypes.get(i)).get();
+    }
+
+    return stamp;
+  }
+
+  /**
+   * Retorna o resultado armazenado de uma consulta, caso ele ainda seja
+   * válido.
+   *
+   * @param key String - Chave da consulta.
+   * @return CachedResult - Resultado, ou null caso não exista ou tenha sido
+   * invalidado.
+   */
+  public CachedResult get(String key) {
+    CachedResult result;
+
+    synchronized (this.entries) {
+      result = this.entries.get(key);
+    }
+
+    if (result != null && !this.isValid(result)) {
+      synchronized (this.entries) {
+        this.entries.remove(key, result);
+      }
+
+      result = null;
+    }
+
+    if (result == null) {
+      this.misses.incrementAndGet();
+    } else {
+      this.hits.incrementAndGet();
+    }
+
+    return result;
+  }
+
+  /**
+   * Armazena o resultado de uma consulta.
+   *
+   * @param key String - Chave da consulta.
+   * @param plan ScoringPlan - Plano compilado da função.
+   * @param stamp long[] - Versões obtidas antes da leitura dos valores.
+   * @param topK ScoreMap - Top-K resultante.
+   * @param insufficient boolean - Se o Top-K possui menos que k scores.
+   * @param contributors List<String> - URIs dos nós filhos que responderam.
+   */
+  public void put(
+    String key,
+    ScoringPlan plan,
+    long[] stamp,
+    ScoreMap topK,
+    boolean insufficient,
+    List<String> contributors
+  ) {
+    CachedResult result = new CachedResult(
+      plan,
+      stamp,
+      topK,
+      insufficient,
+      contributors
+    );
+
+    /* Descarta o resultado caso algo tenha mudado durante o cálculo. */
+    if (!this.isValid(result)) {
+      return;
+    }
+
+    synchronized (this.entries) {
+      this.entries.put(key, result);
+    }
+  }
+
+  /**
+   * Invalida todos os resultados após uma alteração na lista de
+   * dispositivos conectados.
+   */
+  public void devicesChanged() {
+    this.devicesVersion.incrementAndGet();
+
+    synchronized (this.entries) {
+      this.entries.clear();
+    }
+  }
+
+  /**
+   * Invalida os resultados das funções que usam o tipo de sensor alterado.
+   *
+   * @param sensorType String - Tipo do sensor.
+   */
+  public void valueChanged(String sensorType) {
+    this.versionOf(sensorType).incrementAndGet();
+  }
+
+  private boolean isValid(CachedResult result) {
+    if (System.currentTimeMillis() - result.createdAt >= this.maxAgeMillis) {
+      return false;
+    }
+
+    if (result.stamp[0] != this.devicesVersion.get()) {
+      return false;
+    }
+
+    List<String> sensorTypes = result.plan.getSensorTypes();
+
+    for (int i = 0; i < sensorTypes.size(); i++) {
+      if (result.stamp[i + 1] != this.versionOf(sensorTypes.get(i)).get()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private AtomicLong versionOf(String sensorType) {
+    return this.typeVersions.computeIfAbsent(sensorType, t -> new AtomicLong());
+  }
+
+  public long getHitCount() {
+    return this.hits.get();
+  }
+
+  public long getMissCount() {
+    return this.misses.get();
+  }
+
+  /**
+   * Retorna a proporção de consultas atendidas pelos resultados armazenados.
+   *
+   * @return double
+   */
+  public double getHitRatio() {
+    long total = this.hits.get() + this.misses.get();
+
+    return total == 0 ? 0 : (double) this.hits.get() / total;
+  }
+
+  public int size() {
+    synchronized (this.entries) {
+      return this.entries.size();
+    }
+  }
+
+  /**
+   * Resultado armazenado de uma consulta.
+   */
+  public static class CachedResult {
+
+    private final long createdAt = System.currentTimeMillis();
+    private final ScoringPlan plan;
+    private final long[] stamp;
+    private final ScoreMap topK;
+    private final boolean insufficient;
+    private final List<String> contributors;
+
+    private CachedResult(
+      ScoringPlan plan,
+      long[] stamp,
+      ScoreMap topK,
+      boolean insufficient,
+      List<String> contributors
+    ) {
+      this.plan = plan;
+      this.stamp = stamp;
+      this.topK = topK;
+      this.insufficient = insufficient;
+      this.contributors = contributors;
+    }
+
+    public ScoreMap getTopK() {
+      return topK;
+    }
+
+    public boolean isInsufficient() {
+      return insufficient;
+    }
+
+    public List<String> getContributors() {
+      return contributors;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package br.uefs.larsid.dlt.iot.soft.mqtt;
 
 import br.uefs.larsid.dlt.iot.soft.services.Controller;
+import br.uefs.larsid.dlt.iot.soft.utils.BinaryCodec;
 import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 
@@ -8,7 +9,9 @@ public class ListenerConnection implements IMqttMessageListener {
 
   /*-------------------------Constantes---------------------------------------*/
   private static final String CONNECT = "SYN";
+  private static final String CONNECT_CODECS = "SYN_CODECS";
   private static final String DISCONNECT = "FIN";
+  private static final String CODECS = "codecs=";
   /*--------------------------------------------------------------------------*/
 
   private boolean debugModeValue;
@@ -44,7 +47,15 @@ public class ListenerConnection implements IMqttMessageListener {
   public void messageArrived(String topic, MqttMessage message)
     throws Exception {
     final String[] params = topic.split("/");
-    String uriDown = new String(message.getPayload());
+    byte[] payload = this.MQTTClientHost.decompress(message.getPayload());
+
+    if (payload == null) {
+      return;
+    }
+
+    /* payload = uri, ou uri;codecs=codec1,codec2 no tópico SYN_CODECS */
+    String[] options = new String(payload).split(";");
+    String uriDown = options[0];
 
     printlnDebug("==== Receive Connect Request ====");
 
@@ -53,6 +64,10 @@ public class ListenerConnection implements IMqttMessageListener {
       case CONNECT:
         this.controllerImpl.addNodeUri(uriDown);
 
+        break;
+      case CONNECT_CODECS:
+        this.controllerImpl.addNodeUri(uriDown, this.acceptsBinary(options));
+
         break;
       case DISCONNECT:
         this.controllerImpl.removeNodeUri(uriDown);
@@ -61,6 +76,26 @@ public class ListenerConnection implements IMqttMessageListener {
     }
   }
 
+  /**
+   * Verifica se o nó filho anunciou o codec binário.
+   *
+   * @param options String[] - Opções enviadas junto ao URI.
+   * @return boolean
+   */
+  private boolean acceptsBinary(String[] options) {
+    for (int i = 1; i < options.length; i++) {
+      if (options[i].startsWith(CODECS)) {
+        for (String codec : options[i].substring(CODECS.length()).split(",")) {
+          if (codec.equals(BinaryCodec.NAME)) {
+            return true;
+          }
+        }
+      }
+    }
+
+    return false;
+  }
+
   private void printlnDebug(String str) {
     if (isDebugModeValue()) {
       System.out.println(str);
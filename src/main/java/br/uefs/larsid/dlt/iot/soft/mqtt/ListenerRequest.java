@@ -1,13 +1,19 @@
 package br.uefs.larsid.dlt.iot.soft.mqtt;
 
+import br.uefs.larsid.dlt.iot.soft.model.QuorumPolicy;
+import br.uefs.larsid.dlt.iot.soft.model.RequestExecutor;
 import br.uefs.larsid.dlt.iot.soft.services.Controller;
-import br.uefs.larsid.dlt.iot.soft.utils.SortTopK;
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import br.uefs.larsid.dlt.iot.soft.utils.BinaryCodec;
+import br.uefs.larsid.dlt.iot.soft.utils.JsonCodec;
+import br.uefs.larsid.dlt.iot.soft.utils.RequestDeadline;
+import br.uefs.larsid.dlt.iot.soft.utils.ScoreMap;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 
@@ -29,8 +35,10 @@ public class ListenerRequest implements IMqttMessageListener {
   private boolean debugModeValue;
   private MQTTClient MQTTClientUp;
   private MQTTClient MQTTClientHost;
+  private MQTTClientPool MQTTClientsDown;
   private List<String> nodesUris;
   private Controller controllerImpl;
+  private RequestExecutor requestExecutor;
 
   /**
    * Método construtor.
@@ -38,7 +46,10 @@ public class ListenerRequest implements IMqttMessageListener {
    * @param controllerImpl Controller - Controller que fará uso desse Listener.
    * @param MQTTClientUp   MQTTClient - Cliente MQTT do gateway superior.
    * @param MQTTClientHost   MQTTClient - Cliente MQTT do próprio gateway.
+   * @param MQTTClientsDown MQTTClientPool - Conexões com os nós filhos.
    * @param nodesUris   List<String> - Lista de URIs.
+   * @param requestExecutor RequestExecutor - Executor que processa as
+   * requisições fora da thread do cliente MQTT.
    * @param topics          String[] - Tópicos que serão assinados.
    * @param qos            int - Qualidade de serviço do tópico que será ouvido.
    * @param debugModeValue boolean - Modo para debugar o código.
@@ -47,15 +58,19 @@ public class ListenerRequest implements IMqttMessageListener {
     Controller controllerImpl,
     MQTTClient MQTTClientUp,
     MQTTClient MQTTClientHost,
+    MQTTClientPool MQTTClientsDown,
     List<String> nodesUris,
+    RequestExecutor requestExecutor,
     String[] topics,
     int qos,
     boolean debugModeValue
   ) {
     this.MQTTClientUp = MQTTClientUp;
     this.MQTTClientHost = MQTTClientHost;
+    this.MQTTClientsDown = MQTTClientsDown;
     this.nodesUris = nodesUris;
     this.controllerImpl = controllerImpl;
+    this.requestExecutor = requestExecutor;
     this.debugModeValue = debugModeValue;
 
     if (controllerImpl.hasNodes()) {
@@ -72,45 +87,198 @@ public class ListenerRequest implements IMqttMessageListener {
   @Override
   public void messageArrived(String topic, MqttMessage message)
     throws Exception {
-    /* params = [topic, id] */
-    final String mqttMessage = new String(message.getPayload());
+    /* O prazo da requisição inclui o tempo de espera na fila. */
+    long receivedAt = System.currentTimeMillis();
+
+    MQTTClient receiver = this.controllerImpl.hasNodes()
+      ? this.MQTTClientUp
+      : this.MQTTClientHost;
+
+    byte[] payload = receiver.decompress(message.getPayload());
+
+    if (payload == null) {
+      return;
+    }
+
+    message.setPayload(payload);
+
+    /*
+     * O processamento é feito fora da thread do cliente MQTT, para que as
+     * demais mensagens continuem sendo entregues enquanto a requisição
+     * aguarda os nós filhos.
+     */
+    this.requestExecutor.submit(
+        () -> {
+          try {
+            this.handleMessage(topic, message, receivedAt);
+          } catch (Exception e) {
+            e.printStackTrace();
+          }
+        },
+        () -> this.rejectMessage(topic, message)
+      );
+  }
+
+  /**
+   * Informa à camada superior que a requisição foi recusada, ou descartada,
+   * por falta de espaço na fila de requisições.
+   *
+   * @param topic String - Tópico da requisição.
+   * @param message MqttMessage - Mensagem recebida.
+   */
+  private void rejectMessage(String topic, MqttMessage message) {
+    printlnDebug("Request on topic " + topic + " rejected, queue is full.");
+
+    if (!topic.equals(GET_TOPK) && !topic.equals(TOP_K)) {
+      return;
+    }
+
+    try {
+      boolean binary = BinaryCodec.isBinary(message.getPayload());
+      String id = this.parseTopKRequest(message.getPayload())
+        .get("id")
+        .asText();
+      String reason = "Request rejected, the gateway is overloaded!";
+
+      if (topic.equals(GET_TOPK)) {
+        this.controllerImpl.sendInvalidTopKMessage(id, reason);
+      } else {
+        MQTTClientUp.publish(
+          INVALID_TOP_K + id,
+          binary ? BinaryCodec.encodeText(reason) : reason.getBytes(),
+          QOS
+        );
+      }
+    } catch (RuntimeException e) {
+      printlnDebug("Invalid request payload on topic " + topic);
+    }
+  }
+
+  /**
+   * Processa uma requisição recebida.
+   *
+   * @param topic String - Tópico da requisição.
+   * @param message MqttMessage - Mensagem recebida.
+   * @param receivedAt long - Instante (em milissegundos) da chegada.
+   */
+  private void handleMessage(
+    String topic,
+    MqttMessage message,
+    long receivedAt
+  ) {
     int k;
     String id;
-    JsonArray functionHealth;
+    ArrayNode functionHealth;
+    long deadline;
 
     switch (topic) {
       case GET_TOPK:
-        JsonObject jsonGetTopK = new Gson()
-        .fromJson(mqttMessage, JsonObject.class);
+        ObjectNode jsonGetTopK = JsonCodec.readObject(message.getPayload());
+
+        id = jsonGetTopK.get("id").asText();
+        k = jsonGetTopK.get("k").asInt();
+        functionHealth = (ArrayNode) jsonGetTopK.get("functionHealth");
+
+        QuorumPolicy policy = this.controllerImpl.quorumPolicyOf(jsonGetTopK);
+
+        /* Prazo informado por quem fez a requisição, caso exista. */
+        long callerDeadline = RequestDeadline.of(jsonGetTopK, receivedAt);
+
+        /*
+         * O prazo de agregação, que vem das latências dos nós filhos, limita
+         * a espera e é repassado aos nós filhos; apenas o prazo explícito
+         * (orçamento da requisição ou prazo de quem a fez) recusa a
+         * requisição atrasada na fila e impede as consultas à API.
+         */
+        deadline =
+          Math.min(
+            this.controllerImpl.topKDeadline(receivedAt, policy),
+            callerDeadline
+          );
 
-        id = jsonGetTopK.get("id").getAsString();
-        k = jsonGetTopK.get("k").getAsInt();
-        functionHealth = jsonGetTopK.get("functionHealth").getAsJsonArray();
+        long requestDeadline = Math.min(
+          policy.requestDeadline(receivedAt),
+          callerDeadline
+        );
 
         if (k == 0) {
           printlnDebug("Top-K = 0");
 
           this.controllerImpl.sendEmptyTopK(id);
+        } else if (RequestDeadline.isExpired(requestDeadline)) {
+          this.controllerImpl.sendInvalidTopKMessage(
+              id,
+              "Request dropped, the deadline expired!"
+            );
+        } else if (
+          this.controllerImpl.publishCachedTopK(
+              id,
+              k,
+              functionHealth,
+              policy,
+              requestDeadline
+            )
+        ) {
+          printlnDebug("Top-K request " + id + " answered from the cache.");
+        } else if (
+          this.controllerImpl.attachToPendingTopK(id, k, functionHealth, policy)
+        ) {
+          /* O resultado será publicado pela consulta idêntica em andamento. */
+          printlnDebug("Top-K request " + id + " coalesced.");
+        } else if (!this.controllerImpl.addRequest(id, k)) {
+          this.controllerImpl.sendInvalidTopKMessage(
+              id,
+              "Request rejected, too many requests in flight!"
+            );
         } else {
-          Map<String, Integer> scoreMapEmpty = new LinkedHashMap<String, Integer>();
-
-          this.controllerImpl.getTopKScores().put(id, scoreMapEmpty);
-
           if (controllerImpl.hasNodes()) {
             printlnDebug("==== Cloud gateway -> Fog gateway  ====");
 
-            /* Criando uma nova chave, no mapa de requisições */
-            this.controllerImpl.addResponse(id);
-
-            byte[] messageDown = message.getPayload();
+            /*
+             * A mesma lista de nós filhos define as respostas esperadas e os
+             * destinos da requisição.
+             */
+            List<String> children = new ArrayList<String>(this.nodesUris);
 
-            this.publishToDown(TOP_K, messageDown);
+            /* Criando uma nova chave, no mapa de requisições */
+            this.controllerImpl.addResponse(id, children);
+
+            /*
+             * Os nós filhos recebem o tempo restante até o fim da espera e
+             * até o prazo explícito.
+             */
+            RequestDeadline.put(jsonGetTopK, deadline);
+            RequestDeadline.putBudget(jsonGetTopK, requestDeadline);
+
+            byte[] messageDown = JsonCodec.write(jsonGetTopK);
+            byte[] binaryMessageDown = BinaryCodec.encodeTopKRequest(
+              id,
+              k,
+              functionHealth,
+              deadline,
+              requestDeadline
+            );
+
+            this.publishToDown(
+                TOP_K,
+                messageDown,
+                binaryMessageDown,
+                id,
+                children
+              );
           }
 
           /* Aguarda as respostas dos nós da camada inferior conectados a ele;
            * e publica para a camada superior o Top-K resultante.
            */
-          this.controllerImpl.publishTopK(id, k, functionHealth);
+          this.controllerImpl.publishTopK(
+              id,
+              k,
+              functionHealth,
+              policy,
+              deadline,
+              requestDeadline
+            );
         }
 
         break;
@@ -118,20 +286,35 @@ public class ListenerRequest implements IMqttMessageListener {
         printlnDebug("==== Fog gateway -> Bottom gateway  ====");
         printlnDebug("Calculating scores from devices...");
 
-        JsonObject jsonGetTopKDown = new Gson()
-        .fromJson(mqttMessage, JsonObject.class);
+        /* O nó filho responde no mesmo formato da requisição recebida. */
+        boolean binary = BinaryCodec.isBinary(message.getPayload());
+        ObjectNode jsonGetTopKDown = this.parseTopKRequest(message.getPayload());
+
+        id = jsonGetTopKDown.get("id").asText();
+        k = jsonGetTopKDown.get("k").asInt();
+        functionHealth = (ArrayNode) jsonGetTopKDown.get("functionHealth");
+        deadline = RequestDeadline.of(jsonGetTopKDown, receivedAt);
+
+        /* Apenas o prazo explícito impede as consultas à API. */
+        long refreshDeadline = RequestDeadline.budgetOf(
+          jsonGetTopKDown,
+          receivedAt
+        );
+
+        /* A resposta não seria mais aguardada pelo nó pai. */
+        if (RequestDeadline.isExpired(deadline)) {
+          printlnDebug("Top-K request " + id + " dropped, deadline expired.");
 
-        id = jsonGetTopKDown.get("id").getAsString();
-        k = jsonGetTopKDown.get("k").getAsInt();
-        functionHealth = jsonGetTopKDown.get("functionHealth").getAsJsonArray();
+          break;
+        }
 
-        Map<String, Integer> scores = new LinkedHashMap<String, Integer>();
+        ScoreMap scores = new ScoreMap();
 
         /*
          * Consumindo API Iot para resgatar os valores mais atualizados dos
          * dispositivos.
          */
-        this.controllerImpl.loadConnectedDevices();
+        this.controllerImpl.loadConnectedDevices(refreshDeadline);
 
         /**
          * Se não houver nenhum dispositivo conectado.
@@ -139,32 +322,40 @@ public class ListenerRequest implements IMqttMessageListener {
         if (this.controllerImpl.getDevices().isEmpty()) {
           printlnDebug("Sorry, there are no devices connected.");
 
-          byte[] payload = scores.toString().getBytes();
+          byte[] payload = binary
+            ? BinaryCodec.encodeScores(scores)
+            : scores.toString().getBytes();
 
           MQTTClientUp.publish(TOP_K_FOG_RES + id, payload, 1);
         } else {
-          scores = this.controllerImpl.calculateScores(functionHealth);
-
           /*
-           * Reordenando o mapa de Top-K (Ex: {device2=23, device1=14}) e
+           * Calculando o Top-K ordenado (Ex: {device2=23, device1=14}) e
            * atribuindo-o à carga de mensagem do MQTT
            */
-          Map<String, Integer> topK = SortTopK.sortTopK(
-            scores,
-            k,
-            debugModeValue
-          );
+          ScoreMap topK =
+            this.controllerImpl.calculateTopK(
+                functionHealth,
+                k,
+                refreshDeadline
+              );
+
+          if (RequestDeadline.isExpired(deadline)) {
+            printlnDebug("Top-K request " + id + " dropped, deadline expired.");
 
-          if (k > scores.size()) {
+            break;
+          }
+
+          if (k > topK.size()) {
             printlnDebug("Insufficient Top-K!");
 
-            byte[] payload = String
-              .format(
-                "Can't possible calculate the Top-%s, sending the Top-%s!",
-                k,
-                scores.size()
-              )
-              .getBytes();
+            String reason = String.format(
+              "Can't possible calculate the Top-%s, sending the Top-%s!",
+              k,
+              topK.size()
+            );
+            byte[] payload = binary
+              ? BinaryCodec.encodeText(reason)
+              : reason.getBytes();
 
             MQTTClientUp.publish(INVALID_TOP_K + id, payload, 1);
           }
@@ -172,51 +363,63 @@ public class ListenerRequest implements IMqttMessageListener {
           printlnDebug("TOP_K => " + topK.toString());
           printlnDebug("=========================================");
 
-          byte[] payload = topK.toString().getBytes();
+          byte[] payload = binary
+            ? BinaryCodec.encodeScores(topK)
+            : topK.toString().getBytes();
 
-          MQTTClientUp.publish(TOP_K_RES + id, payload, 1);
+          /* O URI deste nó identifica a resposta para o nó pai. */
+          MQTTClientUp.publish(
+            TOP_K_RES + id + "/" + this.controllerImpl.getNodeUri(),
+            payload,
+            1
+          );
         }
 
         break;
       case GET_SENSORS:
         printlnDebug("==== Cloud gateway -> Fog gateway  ====");
 
+        deadline = this.controllerImpl.sensorsDeadline(receivedAt);
+
         /**
          * Requisitando os dispositivos que estão conectados ao próprio nó.
          */
-        this.controllerImpl.loadConnectedDevices();
+        this.controllerImpl.loadConnectedDevices(deadline);
 
         /**
          * Caso existam dispositivos conectados ao próprio nó.
          */
         if (this.controllerImpl.getDevices().size() > 0) {
-          JsonObject jsonGetSensors = new JsonObject();
-          String deviceListJson = new Gson()
-          .toJson(this.controllerImpl.loadSensorsTypes());
-
-          jsonGetSensors.addProperty("sensors", deviceListJson);
-
-          byte[] payload = jsonGetSensors
-            .toString()
-            .replace("\\", "")
-            .getBytes();
+          byte[] payload = JsonCodec.writeSensorsTypesUp(
+            JsonCodec.toJson(this.controllerImpl.loadSensorsTypes())
+          );
 
           MQTTClientUp.publish(SENSORS_FOG_RES, payload, 1);
         } else {
-          this.controllerImpl.getSensorsTypesJSON()
-            .addProperty("sensors", "[]");
+          this.controllerImpl.getSensorsTypesJSON().put("sensors", "[]");
+
+          List<String> children = new ArrayList<String>(this.nodesUris);
 
           /* Criando uma nova chave, no mapa de requisições */
-          this.controllerImpl.addResponse("getSensors");
+          this.controllerImpl.addResponse("getSensors", children);
 
-          byte[] messageDown = "".getBytes();
+          ObjectNode jsonSensorsDown = JsonCodec.objectNode();
 
-          this.publishToDown(SENSORS, messageDown);
+          /* Os nós filhos recebem o tempo restante até o prazo. */
+          RequestDeadline.put(jsonSensorsDown, deadline);
+
+          this.publishToDown(
+              SENSORS,
+              JsonCodec.write(jsonSensorsDown),
+              BinaryCodec.encodeSensorsRequest(deadline),
+              "getSensors",
+              children
+            );
 
           /* Aguarda as respostas dos nós da camada inferior conectados a
            * ele; e publica para a camada superior.
            */
-          this.controllerImpl.publishSensorType();
+          this.controllerImpl.publishSensorType(deadline);
         }
 
         break;
@@ -225,18 +428,36 @@ public class ListenerRequest implements IMqttMessageListener {
 
         printlnDebug("==== Fog gateway -> Bottom gateway  ====");
 
+        deadline =
+          RequestDeadline.of(
+            this.parseSensorsRequest(message.getPayload()),
+            receivedAt
+          );
+
+        /* A resposta não seria mais aguardada pelo nó pai. */
+        if (RequestDeadline.isExpired(deadline)) {
+          printlnDebug("Sensors request dropped, deadline expired.");
+
+          break;
+        }
+
         /**
          * Requisitando os dispositivos que estão conectados ao próprio nó.
          */
-        this.controllerImpl.loadConnectedDevices();
+        this.controllerImpl.loadConnectedDevices(deadline);
 
-        JsonObject jsonGetSensors = new JsonObject();
-        String deviceListJson = new Gson()
-        .toJson(this.controllerImpl.loadSensorsTypes());
+        if (BinaryCodec.isBinary(message.getPayload())) {
+          payload =
+            BinaryCodec.encodeSensorsTypes(
+              this.controllerImpl.loadSensorsTypes()
+            );
+          MQTTClientUp.publish(SENSORS_RES, payload, 1);
 
-        jsonGetSensors.addProperty("sensors", deviceListJson);
+          break;
+        }
 
-        payload = jsonGetSensors.toString().getBytes();
+        payload =
+          JsonCodec.writeSensorsTypes(this.controllerImpl.loadSensorsTypes());
 
         MQTTClientUp.publish(SENSORS_RES, payload, 1);
 
@@ -254,30 +475,80 @@ public class ListenerRequest implements IMqttMessageListener {
   }
 
   /**
-   * Publica a requisição para os nós filhos.
+   * Converte uma requisição de Top-K, em JSON ou no formato binário.
+   *
+   * @param payload byte[] - Mensagem recebida.
+   * @return ObjectNode
+   */
+  private ObjectNode parseTopKRequest(byte[] payload) {
+    if (BinaryCodec.isBinary(payload)) {
+      return BinaryCodec.decodeTopKRequest(payload);
+    }
+
+    return JsonCodec.readObject(payload);
+  }
+
+  /**
+   * Converte uma requisição dos tipos de sensores, em JSON ou no formato
+   * binário. Os nós pais que não informam o prazo enviam a mensagem vazia.
+   *
+   * @param payload byte[] - Mensagem recebida.
+   * @return ObjectNode
+   */
+  private ObjectNode parseSensorsRequest(byte[] payload) {
+    if (BinaryCodec.isBinary(payload)) {
+      return BinaryCodec.decodeSensorsRequest(payload);
+    }
+
+    if (payload.length == 0) {
+      return JsonCodec.objectNode();
+    }
+
+    return JsonCodec.readObject(payload);
+  }
+
+  /**
+   * Publica a requisição para os nós filhos em paralelo, no formato
+   * negociado com cada um. Os filhos que não receberem a mensagem são
+   * descontados da requisição, para que a sua resposta não seja aguardada.
    *
    * @param topicDown String - Tópico.
    * @param messageDown byte[] - Mensagem que será enviada.
+   * @param binaryMessageDown byte[] - Mensagem no formato binário.
+   * @param key String - Id da requisição.
+   * @param children List<String> - Nós filhos contados nas respostas
+   * esperadas da requisição.
+   * @return Map<String, CompletableFuture<Boolean>> - Resultado do envio para
+   * cada nó filho.
    */
-  private void publishToDown(String topicDown, byte[] messageDown) {
-    String user = this.MQTTClientUp.getUserName();
-    String password = this.MQTTClientUp.getPassword();
-
-    for (String nodeUri : this.nodesUris) {
-      String uri[] = nodeUri.split(":");
-
-      MQTTClient MQTTClientDown = new MQTTClient(
-        this.debugModeValue,
-        uri[0],
-        uri[1],
-        user,
-        password
+  private Map<String, CompletableFuture<Boolean>> publishToDown(
+    String topicDown,
+    byte[] messageDown,
+    byte[] binaryMessageDown,
+    String key,
+    List<String> children
+  ) {
+    Map<String, CompletableFuture<Boolean>> dispatches = new LinkedHashMap<String, CompletableFuture<Boolean>>();
+
+    for (String nodeUri : children) {
+      byte[] payload = this.controllerImpl.acceptsBinary(nodeUri)
+        ? binaryMessageDown
+        : messageDown;
+      CompletableFuture<Boolean> dispatch =
+        this.MQTTClientsDown.publishAsync(nodeUri, topicDown, payload, QOS);
+
+      dispatch.whenComplete(
+        (published, error) -> {
+          if (error != null || !published) {
+            this.controllerImpl.discountResponse(key, nodeUri);
+          }
+        }
       );
 
-      MQTTClientDown.connect();
-      MQTTClientDown.publish(topicDown, messageDown, QOS);
-      MQTTClientDown.disconnect();
+      dispatches.put(nodeUri, dispatch);
     }
+
+    return dispatches;
   }
 
   private void printlnDebug(String str) {
@@ -1,14 +1,15 @@
 package br.uefs.larsid.dlt.iot.soft.mqtt;
 
 import br.uefs.larsid.dlt.iot.soft.services.Controller;
+import br.uefs.larsid.dlt.iot.soft.utils.BinaryCodec;
 import br.uefs.larsid.dlt.iot.soft.utils.ConvertStringToMap;
+import br.uefs.larsid.dlt.iot.soft.utils.JsonCodec;
+import br.uefs.larsid.dlt.iot.soft.utils.ScoreMap;
 
-import java.util.Map;
 import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 public class ListenerResponse implements IMqttMessageListener {
 
@@ -51,30 +52,44 @@ public class ListenerResponse implements IMqttMessageListener {
   public void messageArrived(String topic, MqttMessage message)
     throws Exception {
     final String[] params = topic.split("/");
-    String messageContent = new String(message.getPayload());
+
+    byte[] payload = this.MQTTClientHost.decompress(message.getPayload());
+
+    if (payload == null) {
+      return;
+    }
+
+    message.setPayload(payload);
+
+    final boolean binary = BinaryCodec.isBinary(message.getPayload());
 
     printlnDebug("==== Bottom gateway -> Fog gateway  ====");
 
     /* Verificar qual o tópico recebido. */
     switch (params[0]) {
       case TOP_K_RES:
-        /* Se o mapa de scores recebido for diferente de vazio. */
-        if (!messageContent.equals("{}")) {
-          Map<String, Integer> fogMap =
-            this.controllerImpl.getMapById(params[1]);
+        ScoreMap fogMap = binary
+          ? BinaryCodec.decodeScores(message.getPayload())
+          : ConvertStringToMap.convertStringToScoreMap(
+            new String(message.getPayload())
+          );
 
-          /* Adicionando o mapa de scores recebido no mapa geral, levando em 
+        /* Se o mapa de scores recebido for diferente de vazio. */
+        if (!fogMap.isEmpty()) {
+          /* Mesclando o mapa de scores recebido ao Top-K parcial, levando em
           consideração o id da requisição. */
-          fogMap.putAll(ConvertStringToMap.convertStringToMap(messageContent));
           controllerImpl.putScores(params[1], fogMap);
 
-          printlnDebug(
-            "Top-K response received and add to the map: " +
-            controllerImpl.getMapById(params[1]).toString()
-          );
+          printlnDebug("Top-K response received and merged: " + fogMap);
 
-          /* Adicionando nova requisição. */
-          this.controllerImpl.updateResponse(params[1]);
+          /*
+           * Adicionando nova requisição. Os nós filhos informam o seu URI no
+           * tópico (TOP_K_HEALTH_RES/{id}/{uri}).
+           */
+          this.controllerImpl.updateResponse(
+              params[1],
+              params.length > 2 ? params[2] : null
+            );
         } else {
           // TODO: Testar com um dos filhos com mapa vazio.
           this.controllerImpl.sendEmptyTopK(params[1]);
@@ -83,10 +98,27 @@ public class ListenerResponse implements IMqttMessageListener {
 
         break;
       case INVALID_TOP_K:
-        printlnDebug("Insufficient Top-K! - " + messageContent);
+        printlnDebug(
+          "Insufficient Top-K! - " +
+          (
+            binary
+              ? BinaryCodec.decodeText(message.getPayload())
+              : new String(message.getPayload())
+          )
+        );
         break;
       case SENSORS_RES:
-        JsonObject jsonResponse = new Gson().fromJson(messageContent, JsonObject.class);
+        ObjectNode jsonResponse;
+
+        if (binary) {
+          jsonResponse = JsonCodec.objectNode();
+          jsonResponse.put(
+            "sensors",
+            JsonCodec.toJson(BinaryCodec.decodeSensorsTypes(message.getPayload()))
+          );
+        } else {
+          jsonResponse = JsonCodec.readObject(message.getPayload());
+        }
 
         this.controllerImpl.putSensorsTypes(jsonResponse);
 
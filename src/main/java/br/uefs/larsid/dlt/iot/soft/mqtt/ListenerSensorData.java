@@ -0,0 +1,151 @@
+package br.uefs.larsid.dlt.iot.soft.mqtt;
+
+import br.uefs.larsid.dlt.iot.soft.model.SensorValueTable;
+import br.uefs.larsid.dlt.iot.soft.utils.JsonCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Iterator;
+import java.util.Map;
+import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+public class ListenerSensorData implements IMqttMessageListener {
+
+  /*-------------------------Constantes---------------------------------------*/
+  private static final String HEADER = "HEADER";
+  private static final String NAME = "NAME";
+  private static final String BODY = "BODY";
+  private static final String FLOW = "FLOW";
+  /*--------------------------------------------------------------------------*/
+
+  private boolean debugModeValue;
+  private SensorValueTable sensorValueTable;
+  private MQTTClient MQTTClientHost;
+
+  /**
+   * Método Construtor.
+   *
+   * @param sensorValueTable SensorValueTable - Tabela que receberá os valores
+   * publicados pelos dispositivos.
+   * @param MQTTClientHost MQTTClient - Cliente MQTT do próprio gateway.
+   * @param topics String[] - Tópicos que serão assinados.
+   * @param qos int - Qualidade de serviço do tópico que será ouvido.
+   * @param debugModeValue boolean - Modo para debugar o código.
+   */
+  public ListenerSensorData(
+    SensorValueTable sensorValueTable,
+    MQTTClient MQTTClientHost,
+    String[] topics,
+    int qos,
+    boolean debugModeValue
+  ) {
+    this.sensorValueTable = sensorValueTable;
+    this.MQTTClientHost = MQTTClientHost;
+    this.debugModeValue = debugModeValue;
+
+    for (String topic : topics) {
+      this.MQTTClientHost.subscribe(qos, this, topic);
+    }
+  }
+
+  /**
+   * Recebe as mensagens TATU publicadas pelos dispositivos (ex:
+   * dev/{deviceId}/RES) e atualiza o valor mais recente de cada sensor.
+   */
+  @Override
+  public void messageArrived(String topic, MqttMessage message)
+    throws Exception {
+    final String[] params = topic.split("/");
+    ObjectNode json;
+
+    try {
+      json = JsonCodec.readObject(message.getPayload());
+    } catch (IllegalArgumentException e) {
+      printlnDebug("Invalid sensor data on topic " + topic);
+      return;
+    }
+
+    if (!json.path(BODY).isObject()) {
+      return;
+    }
+
+    String deviceId = params.length > 1 ? params[1] : null;
+
+    if (json.path(HEADER).has(NAME)) {
+      deviceId = json.path(HEADER).get(NAME).asText();
+    }
+
+    if (deviceId == null) {
+      return;
+    }
+
+    Iterator<Map.Entry<String, JsonNode>> sensors = json.get(BODY).fields();
+
+    while (sensors.hasNext()) {
+      Map.Entry<String, JsonNode> sensor = sensors.next();
+
+      if (sensor.getKey().equals(FLOW)) {
+        continue;
+      }
+
+      JsonNode value = sensor.getValue();
+
+      /* Em mensagens de fluxo, o último valor coletado é o mais recente. */
+      if (value.isArray()) {
+        if (value.size() == 0) {
+          continue;
+        }
+
+        value = value.get(value.size() - 1);
+      }
+
+      try {
+        this.sensorValueTable.update(
+            deviceId,
+            sensor.getKey(),
+            (int) Math.round(toDouble(value))
+          );
+      } catch (RuntimeException e) {
+        printlnDebug(
+          String.format(
+            "Invalid value for sensor %s of device %s.",
+            sensor.getKey(),
+            deviceId
+          )
+        );
+      }
+    }
+  }
+
+  /**
+   * Converte o valor de um sensor, numérico ou em texto.
+   *
+   * @param value JsonNode - Valor publicado.
+   * @return double
+   */
+  private static double toDouble(JsonNode value) {
+    if (value.isNumber()) {
+      return value.doubleValue();
+    }
+
+    if (!value.isTextual()) {
+      throw new IllegalArgumentException("Invalid sensor value.");
+    }
+
+    return Double.parseDouble(value.asText());
+  }
+
+  private void printlnDebug(String str) {
+    if (isDebugModeValue()) {
+      System.out.println(str);
+    }
+  }
+
+  public boolean isDebugModeValue() {
+    return debugModeValue;
+  }
+
+  public void setDebugModeValue(boolean debugModeValue) {
+    this.debugModeValue = debugModeValue;
+  }
+}
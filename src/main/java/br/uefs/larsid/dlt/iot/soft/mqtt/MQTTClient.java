@@ -1,7 +1,11 @@
 package br.uefs.larsid.dlt.iot.soft.mqtt;
 
 import br.uefs.larsid.dlt.iot.soft.services.MQTTClientService;
+import br.uefs.larsid.dlt.iot.soft.utils.PayloadCompression;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
 import org.eclipse.paho.client.mqttv3.IMqttToken;
@@ -17,6 +21,15 @@ public class MQTTClient implements MqttCallbackExtended, MQTTClientService {
   /*-------------------------Constantes---------------------------------------*/
   private static final int QOS = 1;
   private static final String CONNECTED = "CONNECTED/1/1";
+  /* Tempo máximo (em milissegundos) de espera pelo envio do DISCONNECT. */
+  private static final long DISCONNECT_TIMEOUT = 1000;
+  private static final int DEFAULT_MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+  /*
+   * Tópico retido em que cada nó pai anuncia, no próprio broker, os codecs
+   * de compressão que aceita: codecs=codec1,codec2.
+   */
+  private static final String ACCEPTED_CODECS = "ACK_CODECS";
+  private static final String CODECS = "codecs=";
   /*--------------------------------------------------------------------------*/
 
   private String ip;
@@ -24,9 +37,16 @@ public class MQTTClient implements MqttCallbackExtended, MQTTClientService {
   private String userName;
   private String password;
   private String serverURI;
-  private MqttClient mqttClient;
+  private volatile MqttClient mqttClient;
   private MqttConnectOptions mqttOptions;
   private boolean debugModeValue;
+  private PayloadCompression.Codec compressionCodec =
+    PayloadCompression.Codec.NONE;
+  private int compressionThreshold;
+  /* Codecs anunciados pelo nó que recebe as publicações deste cliente. */
+  private volatile Set<PayloadCompression.Codec> peerCodecs = Collections.emptySet();
+  private int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+  private boolean closed;
 
   public MQTTClient() {}
 
@@ -74,9 +94,16 @@ public class MQTTClient implements MqttCallbackExtended, MQTTClientService {
 
   /**
    * O cliente conecta-se a um servidor MQTT usando as opções especificadas.
+   * Conexões simultâneas são serializadas, evitando que um cliente
+   * substitua o outro sem ser fechado.
    */
   @Override
-  public void connect() {
+  public synchronized void connect() {
+    /* O cliente foi encerrado enquanto a conexão aguardava. */
+    if (this.closed) {
+      return;
+    }
+
     try {
       printlnDebug(
         "Trying to connect to the MQTT broker " + this.serverURI + "..."
@@ -98,6 +125,35 @@ public class MQTTClient implements MqttCallbackExtended, MQTTClientService {
     }
   }
 
+  /**
+   * Restabelece a conexão com o servidor caso ela tenha sido perdida ou
+   * nunca tenha sido estabelecida.
+   */
+  public synchronized void reconnect() {
+    if (mqttClient != null) {
+      if (mqttClient.isConnected()) {
+        return;
+      }
+
+      try {
+        mqttClient.close(true);
+      } catch (MqttException ex) {
+        printlnDebug("Error closing stale MQTT client - " + ex);
+      }
+    }
+
+    this.connect();
+  }
+
+  /**
+   * Verifica se o cliente está conectado ao servidor.
+   *
+   * @return boolean
+   */
+  public boolean isConnected() {
+    return mqttClient != null && mqttClient.isConnected();
+  }
+
   /**
    * O cliente desconecta-se do servidor.
    */
@@ -117,6 +173,34 @@ public class MQTTClient implements MqttCallbackExtended, MQTTClientService {
     }
   }
 
+  /**
+   * Encerra o cliente mesmo que a conexão tenha sido perdida, interrompendo
+   * a reconexão automática. O cliente não pode ser usado novamente.
+   */
+  public synchronized void close() {
+    this.closed = true;
+
+    if (mqttClient == null) {
+      return;
+    }
+
+    try {
+      if (mqttClient.isConnected()) {
+        mqttClient.disconnectForcibly(0, DISCONNECT_TIMEOUT);
+      }
+    } catch (MqttException ex) {
+      printlnDebug("Error disconnecting from MQTT broker - " + ex);
+    }
+
+    try {
+      mqttClient.close(true);
+
+      printlnDebug("MQTT client closed!");
+    } catch (MqttException ex) {
+      printlnDebug("Error closing MQTT client - " + ex);
+    }
+  }
+
   /**
    * O cliente realiza a assinatura nos tópicos e na qualidade do serviço
    * passados por parâmetro.
@@ -202,6 +286,92 @@ public class MQTTClient implements MqttCallbackExtended, MQTTClientService {
     publish(topic, payload, qos, false);
   }
 
+  /**
+   * Publica uma mensagem em um tópico no servidor, informando se a
+   * publicação foi aceita pelo cliente.
+   *
+   * @param topic String - Tópico em que será publicada a mensagem.
+   * @param payload byte[] - Matriz de bytes da mensagem.
+   * @param qos int - Qualidade do serviço.
+   * @return boolean
+   */
+  public boolean tryPublish(String topic, byte[] payload, int qos) {
+    return publish(topic, payload, qos, false);
+  }
+
+  /**
+   * Anuncia, em uma mensagem retida no broker deste cliente, os codecs de
+   * compressão aceitos por este nó, para que os nós filhos passem a
+   * comprimir as mensagens enviadas a ele.
+   */
+  public void advertiseCompressionCodecs() {
+    StringBuilder codecs = new StringBuilder(CODECS);
+
+    for (PayloadCompression.Codec codec : PayloadCompression.Codec.values()) {
+      if (codec != PayloadCompression.Codec.NONE) {
+        if (codecs.length() > CODECS.length()) {
+          codecs.append(',');
+        }
+
+        codecs.append(codec.name().toLowerCase());
+      }
+    }
+
+    this.publish(ACCEPTED_CODECS, codecs.toString().getBytes(), QOS, true);
+  }
+
+  /**
+   * Remove o anúncio dos codecs de compressão aceitos por este nó.
+   */
+  public void clearCompressionCodecs() {
+    this.publish(ACCEPTED_CODECS, new byte[0], QOS, true);
+  }
+
+  /**
+   * Assina o anúncio dos codecs aceitos pelo nó que recebe as publicações
+   * deste cliente. Até o anúncio, e para os nós que não o fazem, as
+   * mensagens são publicadas sem compressão.
+   */
+  public void listenCompressionCodecs() {
+    if (this.compressionCodec == PayloadCompression.Codec.NONE) {
+      return;
+    }
+
+    this.subscribe(
+        QOS,
+        (topic, message) -> {
+          this.peerCodecs = parseCodecs(new String(message.getPayload()));
+
+          printlnDebug("Peer compression codecs: " + this.peerCodecs);
+        },
+        ACCEPTED_CODECS
+      );
+  }
+
+  /**
+   * Converte o anúncio de codecs, ignorando os desconhecidos.
+   *
+   * @param advertisement String - Anúncio no formato codecs=codec1,codec2.
+   * @return Set<PayloadCompression.Codec>
+   */
+  private static Set<PayloadCompression.Codec> parseCodecs(
+    String advertisement
+  ) {
+    Set<PayloadCompression.Codec> codecs = EnumSet.noneOf(
+      PayloadCompression.Codec.class
+    );
+
+    if (advertisement.startsWith(CODECS)) {
+      for (String name : advertisement.substring(CODECS.length()).split(",")) {
+        codecs.add(PayloadCompression.Codec.fromString(name));
+      }
+    }
+
+    codecs.remove(PayloadCompression.Codec.NONE);
+
+    return codecs;
+  }
+
   /**
    * Publica uma mensagem em um tópico no servidor e retorna a mensagem
    * aos assinantes assim que for entregue.
@@ -211,19 +381,45 @@ public class MQTTClient implements MqttCallbackExtended, MQTTClientService {
    * @param qos int - Qualidade do serviço.
    * @param retained boolean - Determina se a mensagem deve ou não
    * ser retida no servidor.
+   * @return boolean - Se a mensagem foi publicada.
    */
-  private synchronized void publish(
+  private boolean publish(
+    String topic,
+    byte[] payload,
+    int qos,
+    boolean retained
+  ) {
+    /*
+     * Mensagens grandes são comprimidas, com a indicação no cabeçalho,
+     * apenas para o nó que anunciou o codec, e fora do bloqueio, para não
+     * atrasar as demais publicações.
+     */
+    if (this.peerCodecs.contains(this.compressionCodec)) {
+      payload =
+        PayloadCompression.compress(
+          payload,
+          this.compressionCodec,
+          this.compressionThreshold
+        );
+    }
+
+    return this.send(topic, payload, qos, retained);
+  }
+
+  private synchronized boolean send(
     String topic,
     byte[] payload,
     int qos,
     boolean retained
   ) {
     try {
-      if (mqttClient.isConnected()) {
+      if (mqttClient != null && mqttClient.isConnected()) {
         mqttClient.publish(topic, payload, qos, retained);
         printlnDebug(
           String.format("Topic %s published. %dB", topic, payload.length)
         );
+
+        return true;
       } else {
         printlnDebug(
           "Client disconnected, could not publish topic " + topic
@@ -232,6 +428,26 @@ public class MQTTClient implements MqttCallbackExtended, MQTTClientService {
     } catch (MqttException ex) {
       printlnDebug("Error to publish " + topic + " - " + ex);
     }
+
+    return false;
+  }
+
+  /**
+   * Descomprime uma mensagem recebida por este cliente, caso ela tenha sido
+   * comprimida, respeitando o tamanho máximo das mensagens.
+   *
+   * @param payload byte[] - Mensagem recebida.
+   * @return byte[] - Mensagem original, ou null caso ela seja inválida ou
+   * exceda o tamanho máximo.
+   */
+  public byte[] decompress(byte[] payload) {
+    try {
+      return PayloadCompression.decompress(payload, this.maxMessageSize);
+    } catch (IllegalArgumentException e) {
+      printlnDebug("Discarding compressed message: " + e.getMessage());
+
+      return null;
+    }
   }
 
   @Override
@@ -273,6 +489,18 @@ public class MQTTClient implements MqttCallbackExtended, MQTTClientService {
     this.debugModeValue = debugModeValue;
   }
 
+  public void setCompressionCodec(String compressionCodec) {
+    this.compressionCodec = PayloadCompression.Codec.fromString(compressionCodec);
+  }
+
+  public void setCompressionThreshold(int compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  public void setMaxMessageSize(int maxMessageSize) {
+    this.maxMessageSize = maxMessageSize;
+  }
+
   public String getIp() {
     return ip;
   }
@@ -0,0 +1,183 @@
+package br.uefs.larsid.dlt.iot.soft.mqtt;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+public class MQTTClientPool {
+
+  private final Map<String, MQTTClient> clients = new ConcurrentHashMap<String, MQTTClient>();
+  private final String userName;
+  private final String password;
+  private final ExecutorService publisher;
+  private boolean debugModeValue;
+
+  /**
+   * Método construtor.
+   *
+   * @param userName String - Usuário para conexão com os brokers dos filhos.
+   * @param password String - Senha para conexão com os brokers dos filhos.
+   * @param parallelism int - Quantidade máxima de publicações simultâneas.
+   * @param debugModeValue boolean - Modo para debugar o código.
+   */
+  public MQTTClientPool(
+    String userName,
+    String password,
+    int parallelism,
+    boolean debugModeValue
+  ) {
+    this.userName = userName;
+    this.password = password;
+    this.publisher =
+      Executors.newFixedThreadPool(
+        Math.max(1, parallelism),
+        runnable -> {
+          Thread thread = new Thread(runnable, "fog-broker-fan-out");
+          thread.setDaemon(true);
+
+          return thread;
+        }
+      );
+    this.debugModeValue = debugModeValue;
+  }
+
+  /**
+   * Abre uma conexão persistente com o broker de um nó filho. A conexão é
+   * estabelecida pelas threads de publicação, sem bloquear quem chama.
+   *
+   * @param nodeUri String - URI do nó filho (ip:porta).
+   * @return MQTTClient
+   */
+  public MQTTClient open(String nodeUri) {
+    MQTTClient client = this.clients.get(nodeUri);
+
+    if (client != null) {
+      return client;
+    }
+
+    String[] address = nodeUri.split(":");
+
+    MQTTClient newClient = new MQTTClient(
+      this.debugModeValue,
+      address[0],
+      address[1],
+      this.userName,
+      this.password
+    );
+
+    client = this.clients.putIfAbsent(nodeUri, newClient);
+
+    /* Outra thread abriu a conexão com o mesmo nó. */
+    if (client != null) {
+      return client;
+    }
+
+    try {
+      this.publisher.execute(
+          () -> {
+            newClient.connect();
+
+            printlnDebug(
+              String.format("Connection to node %s opened.", nodeUri)
+            );
+          }
+        );
+    } catch (RejectedExecutionException e) {
+      printlnDebug(
+        String.format("Connection to node %s not opened, pool closed.", nodeUri)
+      );
+    }
+
+    return newClient;
+  }
+
+  /**
+   * Fecha a conexão com o broker de um nó filho, mesmo que ele esteja se
+   * reconectando.
+   *
+   * @param nodeUri String - URI do nó filho (ip:porta).
+   */
+  public void close(String nodeUri) {
+    MQTTClient client = this.clients.remove(nodeUri);
+
+    if (client != null) {
+      client.close();
+
+      printlnDebug(String.format("Connection to node %s closed.", nodeUri));
+    }
+  }
+
+  /**
+   * Fecha todas as conexões abertas e finaliza as threads de publicação.
+   */
+  public void closeAll() {
+    this.publisher.shutdownNow();
+
+    for (String nodeUri : this.clients.keySet()) {
+      this.close(nodeUri);
+    }
+  }
+
+  /**
+   * Publica uma mensagem no broker de um nó filho sem bloquear quem chama,
+   * de modo que um filho lento não atrase a publicação para os demais.
+   *
+   * @param nodeUri String - URI do nó filho (ip:porta).
+   * @param topic String - Tópico em que será publicada a mensagem.
+   * @param payload byte[] - Matriz de bytes da mensagem.
+   * @param qos int - Qualidade do serviço.
+   * @return CompletableFuture<Boolean> - Resultado da publicação.
+   */
+  public CompletableFuture<Boolean> publishAsync(
+    String nodeUri,
+    String topic,
+    byte[] payload,
+    int qos
+  ) {
+    return CompletableFuture.supplyAsync(
+      () -> this.publish(nodeUri, topic, payload, qos),
+      this.publisher
+    );
+  }
+
+  /**
+   * Publica uma mensagem no broker de um nó filho, reconectando caso a
+   * conexão tenha sido perdida.
+   *
+   * @param nodeUri String - URI do nó filho (ip:porta).
+   * @param topic String - Tópico em que será publicada a mensagem.
+   * @param payload byte[] - Matriz de bytes da mensagem.
+   * @param qos int - Qualidade do serviço.
+   * @return boolean - Se a mensagem foi publicada.
+   */
+  public boolean publish(
+    String nodeUri,
+    String topic,
+    byte[] payload,
+    int qos
+  ) {
+    MQTTClient client = this.clients.get(nodeUri);
+
+    /* O nó se desconectou (FIN) antes da publicação. */
+    if (client == null) {
+      return false;
+    }
+
+    if (!client.isConnected()) {
+      printlnDebug(String.format("Reconnecting to node %s...", nodeUri));
+
+      client.reconnect();
+    }
+
+    return client.tryPublish(topic, payload, qos);
+  }
+
+  private void printlnDebug(String str) {
+    if (debugModeValue) {
+      System.out.println(str);
+    }
+  }
+}
@@ -1,8 +1,10 @@
 package br.uefs.larsid.dlt.iot.soft.services;
 
 import br.uefs.larsid.dlt.iot.soft.entity.Device;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import br.uefs.larsid.dlt.iot.soft.model.QuorumPolicy;
+import br.uefs.larsid.dlt.iot.soft.utils.ScoreMap;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.util.List;
 import java.util.Map;
 
@@ -12,17 +14,124 @@ public interface Controller {
    *
    * @return Map
    */
-  Map<String, Integer> calculateScores(JsonArray functionHealth);
+  Map<String, Integer> calculateScores(ArrayNode functionHealth);
+
+  /**
+   * Calcula o score dos dispositivos conectados, sem criar um objeto por
+   * score.
+   *
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @return ScoreMap
+   */
+  ScoreMap calculateScoreMap(ArrayNode functionHealth);
+
+  /**
+   * Calcula o Top-K dos dispositivos conectados, já ordenado.
+   *
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @param k int - Quantidade de scores requisitados.
+   * @return ScoreMap
+   */
+  ScoreMap calculateTopK(ArrayNode functionHealth, int k);
+
+  /**
+   * Calcula o Top-K dos dispositivos conectados sem ultrapassar o prazo da
+   * requisição.
+   *
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @param k int - Quantidade de scores requisitados.
+   * @param deadline long - Instante limite da requisição.
+   * @return ScoreMap
+   */
+  ScoreMap calculateTopK(ArrayNode functionHealth, int k, long deadline);
+
+  /**
+   * Calcula o instante limite da agregação de uma requisição de Top-K.
+   *
+   * @param receivedAt long - Instante da chegada da requisição.
+   * @param policy QuorumPolicy - Política de quórum da requisição.
+   * @return long
+   */
+  long topKDeadline(long receivedAt, QuorumPolicy policy);
+
+  /**
+   * Calcula o instante limite da espera pelos tipos de sensores.
+   *
+   * @param receivedAt long - Instante da chegada da requisição.
+   * @return long
+   */
+  long sensorsDeadline(long receivedAt);
 
   /**
    * Publica o Top-K calculado para a camada de cima.
    *
    * @param id String - Id da requisição.
    * @param k int - Quantidade de scores requisitados.
-   * @param functionHealth JsonArray - Array contendo a função de cálculo do
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @param policy QuorumPolicy - Política de quórum da requisição.
+   * @param deadline long - Instante limite da agregação.
+   * @param requestDeadline long - Prazo explícito da requisição.
+   */
+  void publishTopK(
+    String id,
+    int k,
+    ArrayNode functionHealth,
+    QuorumPolicy policy,
+    long deadline,
+    long requestDeadline
+  );
+
+  /**
+   * Anexa a requisição a uma consulta idêntica (mesmos k, função e política
+   * de quórum) em andamento, que publicará o resultado também sob o id desta
+   * requisição.
+   *
+   * @param id String - Id da requisição.
+   * @param k int - Quantidade de scores requisitados.
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @param policy QuorumPolicy - Política de quórum da requisição.
+   * @return boolean - Se a requisição foi anexada.
+   */
+  boolean attachToPendingTopK(
+    String id,
+    int k,
+    ArrayNode functionHealth,
+    QuorumPolicy policy
+  );
+
+  /**
+   * Lê a política de quórum de uma requisição de Top-K.
+   *
+   * @param request ObjectNode - Requisição de Top-K.
+   * @return QuorumPolicy
+   */
+  QuorumPolicy quorumPolicyOf(ObjectNode request);
+
+  /**
+   * Publica o resultado armazenado de uma consulta idêntica (mesmos k e
+   * função), sem consultar os nós filhos.
+   *
+   * @param id String - Id da requisição.
+   * @param k int - Quantidade de scores requisitados.
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
    * Top-K.
+   * @param policy QuorumPolicy - Política de quórum da requisição.
+   * @param requestDeadline long - Prazo explícito da requisição, que decide
+   * se a lista de dispositivos pode ser atualizada pela API.
+   * @return boolean - Se a requisição foi respondida.
    */
-  void publishTopK(String id, int k, JsonArray functionHealth);
+  boolean publishCachedTopK(
+    String id,
+    int k,
+    ArrayNode functionHealth,
+    QuorumPolicy policy,
+    long requestDeadline
+  );
 
   /**
    * Retorna o mapa de scores de acordo com o id da requisição
@@ -34,14 +143,41 @@ public interface Controller {
   Map<String, Integer> getMapById(String id);
 
   /**
-   * Adiciona um mapa de scores de uma nova requisição no mapa de
-   * requisições na sua respectiva.
+   * Retorna o Top-K parcial, já ordenado, de acordo com o id da requisição
+   * passado por parâmetro.
+   *
+   * @param id String - Id da requisição.
+   * @return ScoreMap
+   */
+  ScoreMap getScoreMapById(String id);
+
+  /**
+   * Cria o Top-K parcial de uma nova requisição, no qual os scores são
+   * mesclados à medida que chegam, mantendo apenas os k melhores.
+   *
+   * @param id String - Id da requisição.
+   * @param k int - Quantidade de scores requisitados.
+   * @return boolean - Se a requisição foi aceita, ou recusada por exceder o
+   * limite de requisições em andamento.
+   */
+  boolean addRequest(String id, int k);
+
+  /**
+   * Mescla um mapa de scores ao Top-K parcial da requisição.
    *
    * @param id String - Id da requisição.
-   * @param fogMap Map - Mapa de requisições.
+   * @param fogMap Map - Mapa de scores.
    */
   void putScores(String id, Map<String, Integer> fogMap);
 
+  /**
+   * Mescla um mapa de scores ao Top-K parcial da requisição.
+   *
+   * @param id String - Id da requisição.
+   * @param fogMap ScoreMap - Mapa de scores.
+   */
+  void putScores(String id, ScoreMap fogMap);
+
   /**
    *  Retorna o mapa de requisições do sistema, composto pelo
    * id da requisição (chave) e o mapa de scores (valor).
@@ -94,8 +230,9 @@ public interface Controller {
    * Cria uma nova chave no mapa de resposta dos filhos.
    *
    * @param id String - Id da requisição.
+   * @param nodesUris List<String> - Nós filhos que receberão a requisição.
    */
-  void addResponse(String key);
+  void addResponse(String id, List<String> nodesUris);
 
   /**
    * Atualiza a quantidade de respostas.
@@ -104,6 +241,32 @@ public interface Controller {
    */
   void updateResponse(String key);
 
+  /**
+   * Atualiza a quantidade de respostas, registrando o tempo de resposta do
+   * nó filho.
+   *
+   * @param key String - Id da requisição.
+   * @param nodeUri String - URI do nó filho, ou null caso não seja
+   * informada.
+   */
+  void updateResponse(String key, String nodeUri);
+
+  /**
+   * Retorna o URI deste nó, informado ao nó pai.
+   *
+   * @return String
+   */
+  String getNodeUri();
+
+  /**
+   * Desconta da requisição um nó filho que não recebeu a mensagem, para que
+   * a sua resposta deixe de ser aguardada.
+   *
+   * @param key String - Id da requisição.
+   * @param nodeUri String - URI do nó filho.
+   */
+  void discountResponse(String key, String nodeUri);
+
   /**
    * Remove uma resposta específica da fila de respostas.
    *
@@ -116,6 +279,14 @@ public interface Controller {
    */
   void loadConnectedDevices();
 
+  /**
+   * Adiciona os dispositivos que foram requisitados na lista de dispositivos,
+   * sem consultar a API caso o prazo da requisição esteja próximo.
+   *
+   * @param deadline long - Instante limite da requisição.
+   */
+  void loadConnectedDevices(long deadline);
+
   /**
    * Adiciona um URI na lista de URIs.
    *
@@ -123,6 +294,24 @@ public interface Controller {
    */
   public void addNodeUri(String uri);
 
+  /**
+   * Adiciona um URI na lista de URIs, informando se o nó aceita mensagens no
+   * formato binário.
+   *
+   * @param uri String - URI que deseja adicionar.
+   * @param binary boolean - Se o nó anunciou o codec binário.
+   */
+  public void addNodeUri(String uri, boolean binary);
+
+  /**
+   * Verifica se as mensagens para um nó filho devem ser enviadas no formato
+   * binário.
+   *
+   * @param uri String - URI do nó filho.
+   * @return boolean
+   */
+  public boolean acceptsBinary(String uri);
+
   /**
    * Remove uma URI na lista de URIs.
    *
@@ -151,22 +340,24 @@ public interface Controller {
 
   /**
    * Publica os tipos de sensores para a camada de cima.
+   *
+   * @param deadline long - Instante limite da espera.
    */
-  public void publishSensorType();
+  public void publishSensorType(long deadline);
 
   /**
    * Adiciona os sensores em um JSON para enviar para a camada superior.
    *
-   * @param jsonReceived JsonObject - JSON contendo os tipos dos sensores.
+   * @param jsonReceived ObjectNode - JSON contendo os tipos dos sensores.
    */
-  public void putSensorsTypes(JsonObject jsonReceived);
+  public void putSensorsTypes(ObjectNode jsonReceived);
 
   /**
    * Retorna um JSON contendo os tipos de sensores disponíveis.
    *
-   * @return JsonObject
+   * @return ObjectNode
    */
-  public JsonObject getSensorsTypesJSON();
+  public ObjectNode getSensorsTypesJSON();
 
   /**
    * Requisita os tipos de sensores de um dispositivo conectado.
@@ -0,0 +1,12 @@
+package br.uefs.larsid.dlt.iot.soft.services;
+
+public interface SensorValueListener {
+  /**
+   * Notifica que o valor de um sensor foi alterado.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param sensorId String - Id do sensor.
+   * @param value int - Novo valor do sensor.
+   */
+  void valueChanged(String deviceId, String sensorId, int value);
+}
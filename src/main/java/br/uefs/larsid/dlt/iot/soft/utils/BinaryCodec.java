@@ -0,0 +1,400 @@
+package br.uefs.larsid.dlt.iot.soft.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryCodec {
+
+  /*-------------------------Constantes---------------------------------------*/
+  /* Nome do codec anunciado pelos nós filhos na mensagem de SYN. */
+  public static final String NAME = "binary/1";
+
+  /*
+   * Primeiro byte das mensagens binárias. Não é um caractere ASCII, portanto
+   * não é confundido com as mensagens em JSON ou texto.
+   */
+  private static final byte MAGIC = (byte) 0xB7;
+  private static final byte VERSION = 1;
+
+  public static final byte TOP_K_REQUEST = 1;
+  public static final byte TOP_K_RESPONSE = 2;
+  public static final byte SENSORS_REQUEST = 3;
+  public static final byte SENSORS_RESPONSE = 4;
+  public static final byte TEXT = 5;
+  /*--------------------------------------------------------------------------*/
+
+  private BinaryCodec() {}
+
+  /**
+   * Verifica se a mensagem está no formato binário.
+   *
+   * @param payload byte[] - Mensagem recebida.
+   * @return boolean
+   */
+  public static boolean isBinary(byte[] payload) {
+    return payload.length >= 3 && payload[0] == MAGIC && payload[1] == VERSION;
+  }
+
+  /**
+   * Retorna o tipo de uma mensagem binária.
+   *
+   * @param payload byte[] - Mensagem binária.
+   * @return byte
+   */
+  public static byte typeOf(byte[] payload) {
+    return payload[2];
+  }
+
+  /**
+   * Codifica uma requisição de Top-K.
+   *
+   * @param id String - Id da requisição.
+   * @param k int - Quantidade de scores requisitados.
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @param deadline long - Instante limite da requisição, ou
+   * RequestDeadline.NONE.
+   * @return byte[]
+   */
+  public static byte[] encodeTopKRequest(
+    String id,
+    int k,
+    ArrayNode functionHealth,
+    long deadline
+  ) {
+    return encodeTopKRequest(
+      id,
+      k,
+      functionHealth,
+      deadline,
+      RequestDeadline.NONE
+    );
+  }
+
+  /**
+   * Codifica uma requisição de Top-K com o prazo de agregação e o prazo
+   * explícito. O prazo explícito só é enviado junto ao prazo de agregação.
+   *
+   * @param id String - Id da requisição.
+   * @param k int - Quantidade de scores requisitados.
+   * @param functionHealth ArrayNode - Array contendo a função de cálculo do
+   * Top-K.
+   * @param deadline long - Instante limite da requisição, ou
+   * RequestDeadline.NONE.
+   * @param budgetDeadline long - Instante limite explícito da requisição, ou
+   * RequestDeadline.NONE.
+   * @return byte[]
+   */
+  public static byte[] encodeTopKRequest(
+    String id,
+    int k,
+    ArrayNode functionHealth,
+    long deadline,
+    long budgetDeadline
+  ) {
+    Writer writer = new Writer(TOP_K_REQUEST);
+
+    writer.writeString(id);
+    writer.writeVarInt(k);
+    writer.writeVarInt(functionHealth.size());
+
+    for (int i = 0; i < functionHealth.size(); i++) {
+      JsonNode term = functionHealth.get(i);
+
+      writer.writeString(term.get("sensor").asText());
+      writer.writeVarInt(term.get("weight").asInt());
+    }
+
+    writer.writeDeadline(deadline);
+
+    if (deadline != RequestDeadline.NONE) {
+      writer.writeDeadline(budgetDeadline);
+    }
+
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decodifica uma requisição de Top-K para o mesmo JSON da requisição
+   * original (id, k, functionHealth e, caso existam, remainingMillis e
+   * budgetRemainingMillis).
+   *
+   * @param payload byte[] - Mensagem binária.
+   * @return ObjectNode
+   */
+  public static ObjectNode decodeTopKRequest(byte[] payload) {
+    Reader reader = new Reader(payload, TOP_K_REQUEST);
+    ObjectNode json = JsonCodec.objectNode();
+
+    json.put("id", reader.readString());
+    json.put("k", reader.readVarInt());
+
+    ArrayNode functionHealth = json.putArray("functionHealth");
+    int terms = reader.readVarInt();
+
+    for (int i = 0; i < terms; i++) {
+      ObjectNode term = functionHealth.addObject();
+
+      term.put("sensor", reader.readString());
+      term.put("weight", reader.readVarInt());
+    }
+
+    reader.readDeadline(json, RequestDeadline.FIELD);
+    reader.readDeadline(json, RequestDeadline.BUDGET_FIELD);
+
+    return json;
+  }
+
+  /**
+   * Codifica um mapa de scores, mantendo a ordem.
+   *
+   * @param scores ScoreMap - Mapa de scores.
+   * @return byte[]
+   */
+  public static byte[] encodeScores(ScoreMap scores) {
+    Writer writer = new Writer(TOP_K_RESPONSE);
+
+    writer.writeVarInt(scores.size());
+
+    for (int i = 0; i < scores.size(); i++) {
+      writer.writeString(scores.keyAt(i));
+      writer.writeVarInt(zigZag(scores.scoreAt(i)));
+    }
+
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decodifica um mapa de scores.
+   *
+   * @param payload byte[] - Mensagem binária.
+   * @return ScoreMap
+   */
+  public static ScoreMap decodeScores(byte[] payload) {
+    Reader reader = new Reader(payload, TOP_K_RESPONSE);
+    int size = reader.readVarInt();
+    ScoreMap scores = new ScoreMap(size);
+
+    for (int i = 0; i < size; i++) {
+      String deviceId = reader.readString();
+
+      scores.put(deviceId, unZigZag(reader.readVarInt()));
+    }
+
+    return scores;
+  }
+
+  /**
+   * Codifica uma requisição dos tipos de sensores.
+   *
+   * @param deadline long - Instante limite da requisição, ou
+   * RequestDeadline.NONE.
+   * @return byte[]
+   */
+  public static byte[] encodeSensorsRequest(long deadline) {
+    Writer writer = new Writer(SENSORS_REQUEST);
+
+    writer.writeDeadline(deadline);
+
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decodifica uma requisição dos tipos de sensores para JSON, contendo
+   * remainingMillis caso exista.
+   *
+   * @param payload byte[] - Mensagem binária.
+   * @return ObjectNode
+   */
+  public static ObjectNode decodeSensorsRequest(byte[] payload) {
+    Reader reader = new Reader(payload, SENSORS_REQUEST);
+    ObjectNode json = JsonCodec.objectNode();
+
+    reader.readDeadline(json, RequestDeadline.FIELD);
+
+    return json;
+  }
+
+  /**
+   * Codifica uma lista de tipos de sensores.
+   *
+   * @param sensorsTypes List<String> - Tipos de sensores.
+   * @return byte[]
+   */
+  public static byte[] encodeSensorsTypes(List<String> sensorsTypes) {
+    Writer writer = new Writer(SENSORS_RESPONSE);
+
+    writer.writeVarInt(sensorsTypes.size());
+
+    for (String sensorType : sensorsTypes) {
+      writer.writeString(sensorType);
+    }
+
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decodifica uma lista de tipos de sensores.
+   *
+   * @param payload byte[] - Mensagem binária.
+   * @return List<String>
+   */
+  public static List<String> decodeSensorsTypes(byte[] payload) {
+    Reader reader = new Reader(payload, SENSORS_RESPONSE);
+    int size = reader.readVarInt();
+    List<String> sensorsTypes = new ArrayList<String>(size);
+
+    for (int i = 0; i < size; i++) {
+      sensorsTypes.add(reader.readString());
+    }
+
+    return sensorsTypes;
+  }
+
+  /**
+   * Codifica uma mensagem de texto, ex: o motivo de um Top-K inválido.
+   *
+   * @param text String - Texto.
+   * @return byte[]
+   */
+  public static byte[] encodeText(String text) {
+    Writer writer = new Writer(TEXT);
+
+    writer.writeString(text);
+
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decodifica uma mensagem de texto.
+   *
+   * @param payload byte[] - Mensagem binária.
+   * @return String
+   */
+  public static String decodeText(byte[] payload) {
+    return new Reader(payload, TEXT).readString();
+  }
+
+  private static int zigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static int unZigZag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Escrita de uma mensagem binária: cabeçalho, inteiros em varint e Strings
+   * em UTF-8 prefixadas pelo tamanho.
+   */
+  private static class Writer {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+
+    Writer(byte type) {
+      this.out.write(MAGIC);
+      this.out.write(VERSION);
+      this.out.write(type);
+    }
+
+    void writeVarInt(int value) {
+      while ((value & ~0x7F) != 0) {
+        this.out.write((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+
+      this.out.write(value);
+    }
+
+    void writeString(String value) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+      this.writeVarInt(bytes.length);
+      this.out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Escreve, ao final da mensagem, o tempo restante até o prazo. As
+     * mensagens sem prazo não têm o campo, e os nós que não o conhecem
+     * ignoram os bytes excedentes.
+     */
+    void writeDeadline(long deadline) {
+      if (deadline != RequestDeadline.NONE) {
+        long remaining = RequestDeadline.remaining(deadline);
+
+        this.writeVarInt(
+            (int) Math.max(0, Math.min(remaining, Integer.MAX_VALUE))
+          );
+      }
+    }
+
+    byte[] toByteArray() {
+      return this.out.toByteArray();
+    }
+  }
+
+  /**
+   * Leitura de uma mensagem binária.
+   */
+  private static class Reader {
+
+    private final byte[] payload;
+    private int position = 3;
+
+    Reader(byte[] payload, byte type) {
+      if (!isBinary(payload) || typeOf(payload) != type) {
+        throw new IllegalArgumentException("Unexpected binary message type.");
+      }
+
+      this.payload = payload;
+    }
+
+    int readVarInt() {
+      int value = 0;
+      int shift = 0;
+      byte current;
+
+      do {
+        if (this.position >= this.payload.length || shift > 28) {
+          throw new IllegalArgumentException("Malformed binary message.");
+        }
+
+        current = this.payload[this.position++];
+        value |= (current & 0x7F) << shift;
+        shift += 7;
+      } while ((current & 0x80) != 0);
+
+      return value;
+    }
+
+    String readString() {
+      int length = this.readVarInt();
+
+      if (length < 0 || this.position + length > this.payload.length) {
+        throw new IllegalArgumentException("Malformed binary message.");
+      }
+
+      String value = new String(
+        this.payload,
+        this.position,
+        length,
+        StandardCharsets.UTF_8
+      );
+
+      this.position += length;
+
+      return value;
+    }
+
+    void readDeadline(ObjectNode json, String field) {
+      if (this.position < this.payload.length) {
+        json.put(field, this.readVarInt());
+      }
+    }
+  }
+}
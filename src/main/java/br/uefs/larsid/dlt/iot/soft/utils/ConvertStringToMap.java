@@ -20,4 +20,53 @@ public class ConvertStringToMap {
         Collectors.toMap(entry -> entry[0], entry -> Integer.parseInt(entry[1]))
       );
   }
+
+  /**
+   * Converte uma String no formato de Map (ex: {device2=23, device1=14}) em
+   * um ScoreMap, percorrendo a String uma única vez e sem criar Strings
+   * intermediárias além dos ids.
+   *
+   * @param mapAsString String - String que deseja converter.
+   * @return ScoreMap
+   */
+  public static ScoreMap convertStringToScoreMap(String mapAsString) {
+    ScoreMap scoreMap = new ScoreMap();
+    int end = mapAsString.length() - 1;
+    int position = 1;
+
+    while (position < end) {
+      int separator = nextSeparator(mapAsString, position, end);
+      int equals = mapAsString.lastIndexOf('=', separator);
+      String deviceId = mapAsString.substring(position, equals);
+      int score = 0;
+      int sign = 1;
+      int digit = equals + 1;
+
+      if (digit < end && mapAsString.charAt(digit) == '-') {
+        sign = -1;
+        digit++;
+      }
+
+      while (digit < end && Character.isDigit(mapAsString.charAt(digit))) {
+        score = score * 10 + (mapAsString.charAt(digit) - '0');
+        digit++;
+      }
+
+      scoreMap.put(deviceId, sign * score);
+
+      /* Pulando o separador ", ". */
+      position = digit + 2;
+    }
+
+    return scoreMap;
+  }
+
+  /**
+   * Retorna a posição do fim da entrada que começa em position.
+   */
+  private static int nextSeparator(String mapAsString, int position, int end) {
+    int separator = mapAsString.indexOf(", ", position);
+
+    return separator == -1 || separator > end ? end : separator;
+  }
 }
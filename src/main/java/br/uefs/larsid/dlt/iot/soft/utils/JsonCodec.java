@@ -0,0 +1,274 @@
+package br.uefs.larsid.dlt.iot.soft.utils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+public final class JsonCodec {
+
+  /*-------------------------Constantes---------------------------------------*/
+  /* Capacidade inicial e máxima mantida dos buffers de escrita. */
+  private static final int BUFFER_SIZE = 1024;
+  private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+  /*--------------------------------------------------------------------------*/
+
+  /* ObjectMapper, ObjectReader e JsonFactory são thread-safe após criados. */
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final JsonFactory FACTORY = MAPPER.getFactory();
+  private static final ObjectReader TREE_READER = MAPPER.reader();
+  private static final JsonNodeFactory NODES = MAPPER.getNodeFactory();
+
+  private static final ThreadLocal<Buffer> BUFFERS = ThreadLocal.withInitial(
+    Buffer::new
+  );
+
+  private JsonCodec() {}
+
+  /**
+   * Retorna um leitor pré-configurado para o tipo informado, que pode ser
+   * compartilhado entre as threads.
+   *
+   * @param type TypeReference<?> - Tipo do valor lido.
+   * @return ObjectReader
+   */
+  public static ObjectReader readerFor(TypeReference<?> type) {
+    return MAPPER.readerFor(type);
+  }
+
+  /**
+   * Converte um objeto JSON diretamente da mensagem recebida, sem criar uma
+   * String intermediária.
+   *
+   * @param payload byte[] - Mensagem recebida, em UTF-8.
+   * @return ObjectNode
+   */
+  public static ObjectNode readObject(byte[] payload) {
+    try {
+      JsonNode node = TREE_READER.readTree(payload);
+
+      if (node == null || !node.isObject()) {
+        throw new IllegalArgumentException("Expected a JSON object.");
+      }
+
+      return (ObjectNode) node;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Malformed JSON message.", e);
+    }
+  }
+
+  /**
+   * Converte um JSON à medida que ele é lido.
+   *
+   * @param stream InputStream - Conteúdo em JSON.
+   * @return JsonNode
+   * @throws IOException - Caso o conteúdo não possa ser lido ou convertido.
+   */
+  public static JsonNode readTree(InputStream stream) throws IOException {
+    return TREE_READER.readTree(stream);
+  }
+
+  public static ObjectNode objectNode() {
+    return NODES.objectNode();
+  }
+
+  public static ArrayNode arrayNode() {
+    return NODES.arrayNode();
+  }
+
+  /**
+   * Converte uma lista de Strings em um array JSON, ex: ["a","b"].
+   *
+   * @param values List<String> - Lista de Strings.
+   * @return String
+   */
+  public static String toJson(List<String> values) {
+    try {
+      return MAPPER.writeValueAsString(values);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Escreve um JSON, ex: uma requisição repassada aos nós filhos.
+   *
+   * @param node JsonNode - JSON.
+   * @return byte[]
+   */
+  public static byte[] write(JsonNode node) {
+    Buffer buffer = BUFFERS.get();
+
+    try (JsonGenerator generator = buffer.generator()) {
+      MAPPER.writeTree(generator, node);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    return buffer.drain();
+  }
+
+  /**
+   * Escreve a resposta de Top-K para a camada superior, no formato esperado
+   * pelo cliente, com o array de dispositivos sem escape:
+   * {"id":"...","timestamp":0,"devices":"[{"deviceId":"...","score":0}]"}.
+   *
+   * @param id String - Id da requisição.
+   * @param timestamp long - Instante da resposta.
+   * @param topK ScoreMap - Top-K ordenado.
+   * @return byte[]
+   */
+  public static byte[] writeTopKResponse(
+    String id,
+    long timestamp,
+    ScoreMap topK
+  ) {
+    return writeTopKResponse(id, timestamp, topK, null, true);
+  }
+
+  /**
+   * Escreve a resposta de Top-K para a camada superior, acrescentando os nós
+   * filhos que contribuíram para o resultado:
+   * {...,"contributors":["..."],"complete":false}.
+   *
+   * @param id String - Id da requisição.
+   * @param timestamp long - Instante da resposta.
+   * @param topK ScoreMap - Top-K ordenado.
+   * @param contributors List<String> - URIs dos nós filhos que responderam,
+   * ou null para omitir os campos.
+   * @param complete boolean - Se todos os nós filhos responderam.
+   * @return byte[]
+   */
+  public static byte[] writeTopKResponse(
+    String id,
+    long timestamp,
+    ScoreMap topK,
+    List<String> contributors,
+    boolean complete
+  ) {
+    Buffer buffer = BUFFERS.get();
+
+    try (JsonGenerator generator = buffer.generator()) {
+      generator.writeStartObject();
+      generator.writeStringField("id", id);
+      generator.writeNumberField("timestamp", timestamp);
+      generator.writeFieldName("devices");
+      generator.writeRawValue("\"[");
+
+      for (int i = 0; i < topK.size(); i++) {
+        if (i > 0) {
+          generator.writeRaw(',');
+        }
+
+        generator.writeRaw("{\"deviceId\":\"");
+        generator.writeRaw(topK.keyAt(i));
+        generator.writeRaw("\",\"score\":");
+        generator.writeRaw(Integer.toString(topK.scoreAt(i)));
+        generator.writeRaw('}');
+      }
+
+      generator.writeRaw("]\"");
+
+      if (contributors != null) {
+        generator.writeArrayFieldStart("contributors");
+
+        for (String contributor : contributors) {
+          generator.writeString(contributor);
+        }
+
+        generator.writeEndArray();
+        generator.writeBooleanField("complete", complete);
+      }
+
+      generator.writeEndObject();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    return buffer.drain();
+  }
+
+  /**
+   * Escreve os tipos de sensores para o nó pai, com o array em uma String
+   * escapada: {"sensors":"[\"a\",\"b\"]"}.
+   *
+   * @param sensorsTypes List<String> - Tipos de sensores.
+   * @return byte[]
+   */
+  public static byte[] writeSensorsTypes(List<String> sensorsTypes) {
+    Buffer buffer = BUFFERS.get();
+
+    try (JsonGenerator generator = buffer.generator()) {
+      generator.writeStartObject();
+      generator.writeStringField("sensors", toJson(sensorsTypes));
+      generator.writeEndObject();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    return buffer.drain();
+  }
+
+  /**
+   * Escreve os tipos de sensores para a camada superior, no formato esperado
+   * pelo cliente, com o array sem escape: {"sensors":"["a","b"]"}.
+   *
+   * @param sensors String - Array JSON com os tipos de sensores.
+   * @return byte[]
+   */
+  public static byte[] writeSensorsTypesUp(String sensors) {
+    Buffer buffer = BUFFERS.get();
+
+    try (JsonGenerator generator = buffer.generator()) {
+      generator.writeStartObject();
+      generator.writeFieldName("sensors");
+      generator.writeRawValue("\"" + sensors + "\"");
+      generator.writeEndObject();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    return buffer.drain();
+  }
+
+  /**
+   * Buffer de escrita reaproveitado pelas mensagens de uma mesma thread. Os
+   * bytes são copiados ao final, pois o cliente MQTT mantém a mensagem até a
+   * confirmação do envio.
+   */
+  private static class Buffer extends ByteArrayOutputStream {
+
+    Buffer() {
+      super(BUFFER_SIZE);
+    }
+
+    JsonGenerator generator() throws IOException {
+      this.reset();
+
+      return FACTORY.createGenerator(this, JsonEncoding.UTF8);
+    }
+
+    byte[] drain() {
+      byte[] bytes = this.toByteArray();
+
+      /* Evita manter em memória o buffer de uma mensagem muito grande. */
+      if (this.buf.length > MAX_RETAINED_BUFFER_SIZE) {
+        this.buf = new byte[BUFFER_SIZE];
+      }
+
+      this.reset();
+
+      return bytes;
+    }
+  }
+}
@@ -1,6 +1,6 @@
 package br.uefs.larsid.dlt.iot.soft.utils;
 
-import com.google.gson.JsonObject;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -8,22 +8,22 @@ import java.util.Map;
 public class MapToArray {
 
   /**
-   * Converte um Map<String, Integer> em um Array de JsonObject.
+   * Converte um Map<String, Integer> em um Array de ObjectNode.
    *
    * @param map Map<String, Integer> - Mapa que deseja converter
    * @return Object[]
    */
   public static Object[] mapToArray(Map<String, Integer> map) {
-    List<JsonObject> array = new ArrayList<JsonObject>();
+    List<ObjectNode> array = new ArrayList<ObjectNode>();
 
     for (Object object : map.entrySet().stream().toArray()) {
-      JsonObject json = new JsonObject();
+      ObjectNode json = JsonCodec.objectNode();
 
-      json.addProperty(
+      json.put(
         "deviceId",
         ((Map.Entry<String, Integer>) object).getKey()
       );
-      json.addProperty(
+      json.put(
         "score",
         ((Map.Entry<String, Integer>) object).getValue()
       );
@@ -33,4 +33,25 @@ public class MapToArray {
 
     return array.toArray();
   }
+
+  /**
+   * Converte um ScoreMap em um Array de ObjectNode.
+   *
+   * @param scoreMap ScoreMap - Mapa que deseja converter
+   * @return Object[]
+   */
+  public static Object[] mapToArray(ScoreMap scoreMap) {
+    Object[] array = new Object[scoreMap.size()];
+
+    for (int i = 0; i < scoreMap.size(); i++) {
+      ObjectNode json = JsonCodec.objectNode();
+
+      json.put("deviceId", scoreMap.keyAt(i));
+      json.put("score", scoreMap.scoreAt(i));
+
+      array[i] = json;
+    }
+
+    return array;
+  }
 }
@@ -0,0 +1,182 @@
+package br.uefs.larsid.dlt.iot.soft.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+public class PayloadCompression {
+
+  /*-------------------------Constantes---------------------------------------*/
+  /*
+   * Primeiro byte das mensagens comprimidas, seguido do codec e do tamanho
+   * original (4 bytes). Não é um caractere ASCII nem o início de uma
+   * mensagem binária, portanto mensagens sem compressão continuam sendo
+   * aceitas.
+   */
+  private static final byte MAGIC = (byte) 0xC5;
+  private static final int HEADER_SIZE = 6;
+  private static final int BUFFER_SIZE = 8192;
+  /*--------------------------------------------------------------------------*/
+
+  public enum Codec {
+    NONE((byte) 0),
+    DEFLATE((byte) 1),
+    GZIP((byte) 2);
+
+    private final byte id;
+
+    Codec(byte id) {
+      this.id = id;
+    }
+
+    /**
+     * Converte o nome do codec, ignorando maiúsculas. Valores desconhecidos
+     * desativam a compressão.
+     *
+     * @param name String - Nome do codec.
+     * @return Codec
+     */
+    public static Codec fromString(String name) {
+      for (Codec codec : values()) {
+        if (codec.name().equalsIgnoreCase(name)) {
+          return codec;
+        }
+      }
+
+      return NONE;
+    }
+
+    private static Codec fromId(byte id) {
+      for (Codec codec : values()) {
+        if (codec.id == id) {
+          return codec;
+        }
+      }
+
+      throw new IllegalArgumentException("Unknown compression codec: " + id);
+    }
+  }
+
+  private PayloadCompression() {}
+
+  /**
+   * Comprime a mensagem caso ela atinja o tamanho mínimo e a compressão
+   * reduza o seu tamanho.
+   *
+   * @param payload byte[] - Mensagem.
+   * @param codec Codec - Codec de compressão.
+   * @param threshold int - Tamanho mínimo (em bytes) para comprimir.
+   * @return byte[] - Mensagem comprimida, ou a própria mensagem.
+   */
+  public static byte[] compress(byte[] payload, Codec codec, int threshold) {
+    if (codec == Codec.NONE || payload.length < threshold) {
+      return payload;
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 2);
+
+    out.write(MAGIC);
+    out.write(codec.id);
+    out.write(payload.length >>> 24);
+    out.write(payload.length >>> 16);
+    out.write(payload.length >>> 8);
+    out.write(payload.length);
+
+    try {
+      if (codec == Codec.GZIP) {
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+          gzip.write(payload);
+        }
+      } else {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try (
+          DeflaterOutputStream deflate = new DeflaterOutputStream(out, deflater)
+        ) {
+          deflate.write(payload);
+        } finally {
+          deflater.end();
+        }
+      }
+    } catch (IOException e) {
+      return payload;
+    }
+
+    return out.size() < payload.length ? out.toByteArray() : payload;
+  }
+
+  /**
+   * Descomprime a mensagem, caso ela tenha sido comprimida. O tamanho
+   * original informado no cabeçalho não é confiável: o buffer cresce à
+   * medida que a mensagem é descomprimida, e mensagens que excedam o limite
+   * ou o tamanho informado são recusadas.
+   *
+   * @param payload byte[] - Mensagem recebida.
+   * @param maxSize int - Tamanho máximo (em bytes) da mensagem original.
+   * @return byte[] - Mensagem original.
+   */
+  public static byte[] decompress(byte[] payload, int maxSize) {
+    if (!isCompressed(payload)) {
+      return payload;
+    }
+
+    Codec codec = Codec.fromId(payload[1]);
+    int size =
+      ((payload[2] & 0xFF) << 24) |
+      ((payload[3] & 0xFF) << 16) |
+      ((payload[4] & 0xFF) << 8) |
+      (payload[5] & 0xFF);
+
+    if (size < 0 || size > maxSize) {
+      throw new IllegalArgumentException("Invalid compressed payload size.");
+    }
+
+    ByteArrayOutputStream original = new ByteArrayOutputStream(
+      Math.min(size, Math.max(BUFFER_SIZE, payload.length * 4))
+    );
+    ByteArrayInputStream in = new ByteArrayInputStream(
+      payload,
+      HEADER_SIZE,
+      payload.length - HEADER_SIZE
+    );
+
+    try (
+      InputStream stream = codec == Codec.GZIP
+        ? new GZIPInputStream(in)
+        : new InflaterInputStream(in)
+    ) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int count;
+
+      while ((count = stream.read(buffer)) != -1) {
+        if (original.size() + count > size) {
+          throw new IllegalArgumentException(
+            "Compressed payload larger than its declared size."
+          );
+        }
+
+        original.write(buffer, 0, count);
+      }
+
+      return original.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Corrupted compressed payload.", e);
+    }
+  }
+
+  /**
+   * Verifica se a mensagem foi comprimida.
+   *
+   * @param payload byte[] - Mensagem recebida.
+   * @return boolean
+   */
+  public static boolean isCompressed(byte[] payload) {
+    return payload.length >= HEADER_SIZE && payload[0] == MAGIC;
+  }
+}
@@ -0,0 +1,117 @@
+package br.uefs.larsid.dlt.iot.soft.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public final class RequestDeadline {
+
+  /*-------------------------Constantes---------------------------------------*/
+  /* Requisição sem prazo. */
+  public static final long NONE = Long.MAX_VALUE;
+  /*
+   * Campo das requisições com o tempo restante (em milissegundos) até que a
+   * resposta deixe de ser útil ao nó pai. O tempo é relativo, para não
+   * depender da sincronia dos relógios dos gateways.
+   */
+  public static final String FIELD = "remainingMillis";
+  /*
+   * Campo com o tempo restante até o prazo explícito da requisição (o seu
+   * orçamento de latência), o único que pode impedir a consulta à API.
+   */
+  public static final String BUDGET_FIELD = "budgetRemainingMillis";
+  /*--------------------------------------------------------------------------*/
+
+  private RequestDeadline() {}
+
+  /**
+   * Lê o prazo de uma requisição, a partir do instante em que ela chegou.
+   *
+   * @param request JsonNode - Requisição recebida.
+   * @param receivedAt long - Instante (em milissegundos) da chegada.
+   * @return long - Instante limite, ou NONE caso a requisição não tenha
+   * prazo.
+   */
+  public static long of(JsonNode request, long receivedAt) {
+    return read(request, FIELD, receivedAt);
+  }
+
+  /**
+   * Lê o prazo explícito de uma requisição, a partir do instante em que ela
+   * chegou.
+   *
+   * @param request JsonNode - Requisição recebida.
+   * @param receivedAt long - Instante (em milissegundos) da chegada.
+   * @return long - Instante limite, ou NONE caso a requisição não tenha
+   * orçamento.
+   */
+  public static long budgetOf(JsonNode request, long receivedAt) {
+    return read(request, BUDGET_FIELD, receivedAt);
+  }
+
+  private static long read(JsonNode request, String field, long receivedAt) {
+    JsonNode remaining = request.get(field);
+
+    if (remaining == null || !remaining.canConvertToLong()) {
+      return NONE;
+    }
+
+    return receivedAt + Math.max(0, remaining.asLong());
+  }
+
+  /**
+   * Escreve na requisição repassada aos nós filhos o tempo restante até o
+   * prazo.
+   *
+   * @param request ObjectNode - Requisição repassada.
+   * @param deadline long - Instante limite.
+   */
+  public static void put(ObjectNode request, long deadline) {
+    write(request, FIELD, deadline);
+  }
+
+  /**
+   * Escreve na requisição repassada aos nós filhos o tempo restante até o
+   * prazo explícito.
+   *
+   * @param request ObjectNode - Requisição repassada.
+   * @param deadline long - Instante limite explícito.
+   */
+  public static void putBudget(ObjectNode request, long deadline) {
+    write(request, BUDGET_FIELD, deadline);
+  }
+
+  private static void write(ObjectNode request, String field, long deadline) {
+    if (deadline == NONE) {
+      request.remove(field);
+    } else {
+      request.put(field, Math.max(0, remaining(deadline)));
+    }
+  }
+
+  /**
+   * Calcula o tempo restante até o prazo.
+   *
+   * @param deadline long - Instante limite.
+   * @return long - Tempo restante (em milissegundos), negativo caso o prazo
+   * tenha passado.
+   */
+  public static long remaining(long deadline) {
+    return deadline == NONE ? NONE : deadline - System.currentTimeMillis();
+  }
+
+  /**
+   * Verifica se ainda há tempo para consultar a API antes do prazo.
+   *
+   * @param deadline long - Instante limite da requisição.
+   * @param minBudgetMillis long - Tempo restante (em milissegundos) mínimo
+   * para a consulta.
+   * @return boolean
+   */
+  public static boolean allowsRefresh(long deadline, long minBudgetMillis) {
+    return remaining(deadline) >= minBudgetMillis;
+  }
+
+  public static boolean isExpired(long deadline) {
+    return remaining(deadline) <= 0;
+  }
+}
@@ -0,0 +1,296 @@
+package br.uefs.larsid.dlt.iot.soft.utils;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ScoreMap {
+
+  /**
+   * Consumidor dos pares (dispositivo, score), usado para percorrer o mapa
+   * sem criar objetos por entrada.
+   */
+  public interface ScoreConsumer {
+    void accept(String deviceId, int score);
+  }
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private String[] keys;
+  private int[] scores;
+  private int size;
+  /* Tabela de endereçamento aberto com a posição + 1 de cada chave. */
+  private int[] table;
+
+  public ScoreMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Método construtor.
+   *
+   * @param expectedSize int - Quantidade de scores esperada.
+   */
+  public ScoreMap(int expectedSize) {
+    int capacity = Math.max(DEFAULT_CAPACITY, expectedSize);
+
+    this.keys = new String[capacity];
+    this.scores = new int[capacity];
+    this.table = new int[tableSizeFor(capacity)];
+  }
+
+  /**
+   * Cria um mapa de scores a partir de um Map.
+   *
+   * @param map Map<String, Integer> - Mapa de scores.
+   * @return ScoreMap
+   */
+  public static ScoreMap fromMap(Map<String, Integer> map) {
+    ScoreMap scoreMap = new ScoreMap(map.size());
+
+    for (Map.Entry<String, Integer> entry : map.entrySet()) {
+      scoreMap.put(entry.getKey(), entry.getValue());
+    }
+
+    return scoreMap;
+  }
+
+  /**
+   * Adiciona ou atualiza o score de um dispositivo, mantendo a ordem de
+   * inserção.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param score int - Score do dispositivo.
+   */
+  public void put(String deviceId, int score) {
+    int slot = this.slotOf(deviceId);
+
+    if (this.table[slot] != 0) {
+      this.scores[this.table[slot] - 1] = score;
+      return;
+    }
+
+    if (this.size == this.keys.length) {
+      this.grow();
+      slot = this.slotOf(deviceId);
+    }
+
+    this.keys[this.size] = deviceId;
+    this.scores[this.size] = score;
+    this.table[slot] = ++this.size;
+  }
+
+  /**
+   * Mescla todos os scores de outro mapa.
+   *
+   * @param other ScoreMap - Mapa de scores.
+   */
+  public void putAll(ScoreMap other) {
+    for (int i = 0; i < other.size; i++) {
+      this.put(other.keys[i], other.scores[i]);
+    }
+  }
+
+  /**
+   * Remove o score de um dispositivo. O último dispositivo inserido passa a
+   * ocupar a posição do removido, alterando a ordem de inserção.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @return boolean - Se o dispositivo existia.
+   */
+  public boolean remove(String deviceId) {
+    int slot = this.slotOf(deviceId);
+    int position = this.table[slot];
+
+    if (position == 0) {
+      return false;
+    }
+
+    this.clearSlot(slot);
+
+    int last = --this.size;
+
+    if (position - 1 != last) {
+      this.keys[position - 1] = this.keys[last];
+      this.scores[position - 1] = this.scores[last];
+      this.table[this.slotOf(this.keys[last])] = position;
+    }
+
+    this.keys[last] = null;
+
+    return true;
+  }
+
+  /**
+   * Retorna o score de um dispositivo.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param defaultValue int - Valor retornado caso o dispositivo não exista.
+   * @return int
+   */
+  public int get(String deviceId, int defaultValue) {
+    int position = this.table[this.slotOf(deviceId)];
+
+    return position == 0 ? defaultValue : this.scores[position - 1];
+  }
+
+  public boolean containsKey(String deviceId) {
+    return this.table[this.slotOf(deviceId)] != 0;
+  }
+
+  /**
+   * Retorna o id do dispositivo na posição informada (ordem de inserção).
+   *
+   * @param index int - Posição.
+   * @return String
+   */
+  public String keyAt(int index) {
+    return this.keys[index];
+  }
+
+  /**
+   * Retorna o score na posição informada (ordem de inserção).
+   *
+   * @param index int - Posição.
+   * @return int
+   */
+  public int scoreAt(int index) {
+    return this.scores[index];
+  }
+
+  /**
+   * Percorre os scores na ordem de inserção.
+   *
+   * @param consumer ScoreConsumer - Consumidor dos pares.
+   */
+  public void forEach(ScoreConsumer consumer) {
+    for (int i = 0; i < this.size; i++) {
+      consumer.accept(this.keys[i], this.scores[i]);
+    }
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Converte em um Map, mantendo a ordem de inserção.
+   *
+   * @return Map<String, Integer>
+   */
+  public Map<String, Integer> toMap() {
+    Map<String, Integer> map = new LinkedHashMap<String, Integer>();
+
+    this.forEach(map::put);
+
+    return map;
+  }
+
+  /**
+   * Representação no mesmo formato de Map.toString(), ex: {device2=23,
+   * device1=14}.
+   */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(this.size * 16 + 2).append('{');
+
+    for (int i = 0; i < this.size; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+
+      builder.append(this.keys[i]).append('=').append(this.scores[i]);
+    }
+
+    return builder.append('}').toString();
+  }
+
+  /**
+   * Encontra a posição da chave na tabela, ou a posição livre onde ela deve
+   * ser inserida.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @return int
+   */
+  private int slotOf(String deviceId) {
+    int mask = this.table.length - 1;
+    int slot = spread(deviceId.hashCode()) & mask;
+
+    while (this.table[slot] != 0) {
+      if (this.keys[this.table[slot] - 1].equals(deviceId)) {
+        return slot;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    return slot;
+  }
+
+  /**
+   * Libera uma posição da tabela, trazendo para ela as chaves seguintes que
+   * dependem dela para serem encontradas.
+   *
+   * @param slot int - Posição liberada.
+   */
+  private void clearSlot(int slot) {
+    int mask = this.table.length - 1;
+    int free = slot;
+    int next = slot;
+
+    this.table[free] = 0;
+
+    while (true) {
+      next = (next + 1) & mask;
+
+      if (this.table[next] == 0) {
+        return;
+      }
+
+      int home = spread(this.keys[this.table[next] - 1].hashCode()) & mask;
+      /* A chave pode ir para a posição livre se ela está entre home e next. */
+      boolean movable = free <= next
+        ? home <= free || home > next
+        : home <= free && home > next;
+
+      if (movable) {
+        this.table[free] = this.table[next];
+        this.table[next] = 0;
+        free = next;
+      }
+    }
+  }
+
+  private void grow() {
+    int capacity = this.keys.length * 2;
+
+    this.keys = Arrays.copyOf(this.keys, capacity);
+    this.scores = Arrays.copyOf(this.scores, capacity);
+    this.table = new int[tableSizeFor(capacity)];
+
+    int mask = this.table.length - 1;
+
+    for (int i = 0; i < this.size; i++) {
+      int slot = spread(this.keys[i].hashCode()) & mask;
+
+      while (this.table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+
+      this.table[slot] = i + 1;
+    }
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /* Tabela com pelo menos o dobro da capacidade, em potência de dois. */
+  private static int tableSizeFor(int capacity) {
+    return Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+  }
+}
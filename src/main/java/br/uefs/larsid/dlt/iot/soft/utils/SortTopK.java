@@ -1,13 +1,13 @@
 package br.uefs.larsid.dlt.iot.soft.utils;
 
-import java.util.Comparator;
-import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class SortTopK {
 
   /**
-   * Ordena o mapa contendo os scores dos dispositivos.
+   * Seleciona, em ordem decrescente, os k maiores scores do mapa contendo os
+   * scores dos dispositivos. A seleção usa um heap de tamanho k, com custo
+   * O(n log k), e empates são desfeitos pelo id do dispositivo.
    *
    * @param map Map<String, Integer> - Mapa com os valores para serem ordenados.
    * @param k int - Valor do K do Top-K
@@ -19,38 +19,49 @@ public class SortTopK {
     int k,
     boolean debugModeValue
   ) {
-    Object[] temp = map
-      .entrySet()
-      .stream()
-      .sorted(
-        Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
-      )
-      .toArray();
-
+    /* A listagem completa e ordenada só é montada quando depurando. */
     if (debugModeValue) {
-      for (Object e : temp) {
-        System.out.println(
-          ((Map.Entry<String, Integer>) e).getKey() +
-          " : " +
-          ((Map.Entry<String, Integer>) e).getValue()
-        );
-      }
+      map
+        .entrySet()
+        .stream()
+        .sorted(TopKHeap.BEST_FIRST)
+        .forEach(e -> System.out.println(e.getKey() + " : " + e.getValue()));
     }
 
-    Map<String, Integer> topK = new LinkedHashMap<String, Integer>();
-
     /*
      * Caso a quantidade de dispositivos conectados seja menor que a
-     * quantidade requisitada.
+     * quantidade requisitada, todos são retornados.
      */
-    int maxIteration = k <= map.size() ? k : map.size();
+    TopKHeap heap = new TopKHeap(Math.min(k, map.size()));
+
+    /* Mantendo apenas os k melhores scores. */
+    heap.offerAll(map);
+
+    return heap.toSortedMap();
+  }
 
-    /* Pegando os k piores */
-    for (int i = 0; i < maxIteration; i++) {
-      Map.Entry<String, Integer> e = (Map.Entry<String, Integer>) temp[i];
-      topK.put(e.getKey(), e.getValue());
+  /**
+   * Seleciona, em ordem decrescente, os k maiores scores do mapa contendo os
+   * scores dos dispositivos, sem criar objetos para os demais scores.
+   *
+   * @param scoreMap ScoreMap - Mapa com os valores para serem ordenados.
+   * @param k int - Valor do K do Top-K
+   * @param debugModeValue boolean - Modo de depuração
+   * @return ScoreMap
+   */
+  public static ScoreMap sortTopK(
+    ScoreMap scoreMap,
+    int k,
+    boolean debugModeValue
+  ) {
+    if (debugModeValue) {
+      sortTopK(scoreMap.toMap(), k, true);
     }
 
-    return topK;
+    TopKHeap heap = new TopKHeap(Math.min(k, scoreMap.size()));
+
+    heap.offerAll(scoreMap);
+
+    return heap.toScoreMap();
   }
 }
@@ -0,0 +1,260 @@
+package br.uefs.larsid.dlt.iot.soft.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+public class TopKHeap {
+
+  /**
+   * Ordem do melhor para o pior score. Em caso de empate, o dispositivo com
+   * o menor id vem primeiro, para que o resultado seja determinístico.
+   */
+  public static final Comparator<Map.Entry<String, Integer>> BEST_FIRST = Map.Entry
+    .<String, Integer>comparingByValue(Comparator.reverseOrder())
+    .thenComparing(Map.Entry.comparingByKey());
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final int k;
+  /* Heap em vetores paralelos, com o pior score mantido na raiz. */
+  private String[] ids;
+  private int[] scores;
+  private int size;
+  /* Posição de cada dispositivo mantido no heap. */
+  private final ScoreMap positions;
+
+  /**
+   * Método construtor.
+   *
+   * @param k int - Quantidade de scores mantidos.
+   */
+  public TopKHeap(int k) {
+    this.k = Math.max(0, k);
+
+    int capacity = Math.max(1, Math.min(this.k, INITIAL_CAPACITY));
+
+    this.ids = new String[capacity];
+    this.scores = new int[capacity];
+    this.positions = new ScoreMap(capacity);
+  }
+
+  /**
+   * Oferece um score ao heap, que é mantido apenas se estiver entre os k
+   * melhores vistos até o momento. Cada dispositivo ocupa no máximo uma
+   * posição, com o seu melhor score, para que ofertas repetidas (ex: uma
+   * resposta entregue duas vezes) não tomem o lugar de outros dispositivos.
+   *
+   * @param deviceId String - Id do dispositivo.
+   * @param score int - Score do dispositivo.
+   */
+  public void offer(String deviceId, int score) {
+    if (this.k == 0) {
+      return;
+    }
+
+    boolean full = this.size >= this.k;
+
+    /*
+     * Um score que não supera o pior mantido é descartado sem consultar o
+     * índice: caso o dispositivo já esteja no heap, o seu score é maior.
+     */
+    if (full && !isWorse(this.scores[0], this.ids[0], score, deviceId)) {
+      return;
+    }
+
+    int position = this.positions.get(deviceId, -1);
+
+    if (position >= 0) {
+      if (score <= this.scores[position]) {
+        return;
+      }
+
+      /* Um score maior afasta o dispositivo da raiz. */
+      this.scores[position] = score;
+      siftDown(this.ids, this.scores, position, this.size, this.positions);
+    } else if (full) {
+      this.positions.remove(this.ids[0]);
+      this.ids[0] = deviceId;
+      this.scores[0] = score;
+      this.positions.put(deviceId, 0);
+      siftDown(this.ids, this.scores, 0, this.size, this.positions);
+    } else {
+      if (this.size == this.ids.length) {
+        this.grow();
+      }
+
+      this.ids[this.size] = deviceId;
+      this.scores[this.size] = score;
+      this.positions.put(deviceId, this.size);
+      this.siftUp(this.size++);
+    }
+  }
+
+  /**
+   * Mescla os scores de outro heap, sem convertê-los em um mapa.
+   *
+   * @param other TopKHeap - Heap a ser mesclado.
+   */
+  public void merge(TopKHeap other) {
+    for (int i = 0; i < other.size; i++) {
+      this.offer(other.ids[i], other.scores[i]);
+    }
+  }
+
+  /**
+   * Oferece todos os scores de um mapa ao heap.
+   *
+   * @param scores Map<String, Integer> - Scores dos dispositivos.
+   */
+  public void offerAll(Map<String, Integer> scores) {
+    for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+      this.offer(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Oferece todos os scores de um mapa ao heap.
+   *
+   * @param scores ScoreMap - Scores dos dispositivos.
+   */
+  public void offerAll(ScoreMap scores) {
+    scores.forEach(this::offer);
+  }
+
+  /**
+   * Retorna os scores mantidos, do melhor para o pior.
+   *
+   * @return Map<String, Integer>
+   */
+  public Map<String, Integer> toSortedMap() {
+    return this.toScoreMap().toMap();
+  }
+
+  /**
+   * Retorna os scores mantidos, do melhor para o pior.
+   *
+   * @return ScoreMap
+   */
+  public ScoreMap toScoreMap() {
+    String[] sortedIds = Arrays.copyOf(this.ids, this.size);
+    int[] sortedScores = Arrays.copyOf(this.scores, this.size);
+
+    /* Cada pior score restante vai para o fim (heapsort). */
+    for (int end = this.size - 1; end > 0; end--) {
+      swap(sortedIds, sortedScores, 0, end, null);
+      siftDown(sortedIds, sortedScores, 0, end, null);
+    }
+
+    ScoreMap topK = new ScoreMap(this.size);
+
+    for (int i = 0; i < this.size; i++) {
+      topK.put(sortedIds[i], sortedScores[i]);
+    }
+
+    return topK;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  private void siftUp(int position) {
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+
+      if (
+        !isWorse(
+          this.scores[position],
+          this.ids[position],
+          this.scores[parent],
+          this.ids[parent]
+        )
+      ) {
+        return;
+      }
+
+      swap(this.ids, this.scores, position, parent, this.positions);
+      position = parent;
+    }
+  }
+
+  private static void siftDown(
+    String[] ids,
+    int[] scores,
+    int position,
+    int size,
+    ScoreMap positions
+  ) {
+    while (true) {
+      int worst = position;
+      int left = 2 * position + 1;
+      int right = left + 1;
+
+      if (
+        left < size &&
+        isWorse(scores[left], ids[left], scores[worst], ids[worst])
+      ) {
+        worst = left;
+      }
+
+      if (
+        right < size &&
+        isWorse(scores[right], ids[right], scores[worst], ids[worst])
+      ) {
+        worst = right;
+      }
+
+      if (worst == position) {
+        return;
+      }
+
+      swap(ids, scores, position, worst, positions);
+      position = worst;
+    }
+  }
+
+  private static void swap(
+    String[] ids,
+    int[] scores,
+    int a,
+    int b,
+    ScoreMap positions
+  ) {
+    String id = ids[a];
+    int score = scores[a];
+
+    ids[a] = ids[b];
+    scores[a] = scores[b];
+    ids[b] = id;
+    scores[b] = score;
+
+    if (positions != null) {
+      positions.put(ids[a], a);
+      positions.put(ids[b], b);
+    }
+  }
+
+  /**
+   * Verifica se o primeiro score é pior que o segundo, na ordem inversa de
+   * BEST_FIRST.
+   */
+  private static boolean isWorse(
+    int score,
+    String deviceId,
+    int otherScore,
+    String otherDeviceId
+  ) {
+    return (
+      score < otherScore ||
+      (score == otherScore && deviceId.compareTo(otherDeviceId) > 0)
+    );
+  }
+
+  private void grow() {
+    int capacity = (int) Math.min(this.k, this.ids.length * 2L);
+
+    this.ids = Arrays.copyOf(this.ids, capacity);
+    this.scores = Arrays.copyOf(this.scores, capacity);
+  }
+}
@@ -0,0 +1,53 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeviceRegistryTest {
+
+  private final AtomicInteger requests = new AtomicInteger();
+  private HttpServer server;
+
+  @Before
+  public void setUp() throws Exception {
+    this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    this.server.createContext(
+        "/devices",
+        exchange -> {
+          this.requests.incrementAndGet();
+          exchange.sendResponseHeaders(500, -1);
+          exchange.close();
+        }
+      );
+    this.server.start();
+  }
+
+  @After
+  public void tearDown() {
+    this.server.stop(0);
+  }
+
+  @Test
+  public void failedRefreshBacksOffInsteadOfRetryingEveryCall() {
+    DeviceRegistry registry = new DeviceRegistry(
+      "http://127.0.0.1:" + this.server.getAddress().getPort() + "/devices",
+      0,
+      1000,
+      false
+    );
+
+    registry.refresh();
+    registry.refresh();
+    registry.refresh();
+
+    assertFalse(registry.isLoaded());
+    assertEquals(1, this.requests.get());
+  }
+}
@@ -0,0 +1,84 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class RequestExecutorTest {
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final List<String> rejected = new CopyOnWriteArrayList<String>();
+  private RequestExecutor executor;
+
+  @After
+  public void tearDown() {
+    this.release.countDown();
+
+    if (this.executor != null) {
+      this.executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shedRequestGetsTheRejectionReply() throws Exception {
+    this.executor = this.fillQueue(RequestExecutor.QueuePolicy.SHED);
+
+    assertTrue(this.executor.submit(() -> {}, () -> this.rejected.add("c")));
+
+    assertEquals(1, this.executor.getShedRequests());
+    assertEquals(1, this.rejected.size());
+    assertEquals("b", this.rejected.get(0));
+  }
+
+  @Test
+  public void rejectedRequestGetsTheRejectionReply() throws Exception {
+    this.executor = this.fillQueue(RequestExecutor.QueuePolicy.REJECT);
+
+    assertFalse(this.executor.submit(() -> {}, () -> this.rejected.add("c")));
+
+    assertEquals(1, this.executor.getRejectedRequests());
+    assertEquals(1, this.rejected.size());
+    assertEquals("c", this.rejected.get(0));
+  }
+
+  /**
+   * Ocupa o único worker com a requisição "a" e a única vaga da fila com a
+   * requisição "b".
+   */
+  private RequestExecutor fillQueue(RequestExecutor.QueuePolicy policy)
+    throws InterruptedException {
+    RequestExecutor requestExecutor = new RequestExecutor(
+      "test",
+      1,
+      1,
+      policy,
+      false
+    );
+
+    requestExecutor.submit(
+      () -> {
+        this.started.countDown();
+
+        try {
+          this.release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      },
+      () -> this.rejected.add("a")
+    );
+
+    assertTrue(this.started.await(5, TimeUnit.SECONDS));
+    assertTrue(requestExecutor.submit(() -> {}, () -> this.rejected.add("b")));
+
+    return requestExecutor;
+  }
+}
@@ -0,0 +1,42 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ResponseCompletionTest {
+
+  @Test
+  public void repeatedReplyFromTheSameNodeCountsOnce() {
+    ResponseCompletion completion = new ResponseCompletion(2);
+
+    assertTrue(completion.signal("10.0.0.1:1883"));
+    assertFalse(completion.signal("10.0.0.1:1883"));
+
+    assertEquals(1, completion.getReceived());
+    assertFalse(completion.isComplete());
+
+    completion.signal("10.0.0.2:1883");
+
+    assertTrue(completion.isComplete());
+  }
+
+  @Test
+  public void repeatedRepliesDoNotReachTheQuorum() throws Exception {
+    ResponseCompletion completion = new ResponseCompletion(4);
+
+    completion.signal("10.0.0.1:1883");
+    completion.signal("10.0.0.1:1883");
+    completion.signal("10.0.0.2:1883");
+    completion.signal("10.0.0.2:1883");
+
+    assertFalse(completion.hasQuorum(0.75));
+    assertFalse(completion.await(System.currentTimeMillis() + 50, 0.75));
+
+    completion.signal("10.0.0.3:1883");
+
+    assertTrue(completion.await(System.currentTimeMillis() + 50, 0.75));
+  }
+}
@@ -0,0 +1,67 @@
+package br.uefs.larsid.dlt.iot.soft.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import br.uefs.larsid.dlt.iot.soft.utils.JsonCodec;
+import br.uefs.larsid.dlt.iot.soft.utils.ScoreMap;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import java.util.ArrayList;
+import org.junit.Test;
+
+public class TopKResultCacheTest {
+
+  private final TopKResultCache cache = new TopKResultCache(16, 60000);
+  private final ScoringPlan plan = this.planOf("heartRate");
+
+  @Test
+  public void resultIsStoredWhenNothingChangedSinceTheStamp() {
+    long[] stamp = this.cache.stamp(this.plan);
+
+    this.put(stamp);
+
+    assertNotNull(this.cache.get("key"));
+  }
+
+  @Test
+  public void valueChangedWhileScoringDiscardsTheResult() {
+    long[] stamp = this.cache.stamp(this.plan);
+
+    /* Valor alterado entre a leitura e o armazenamento do resultado. */
+    this.cache.valueChanged("heartRate");
+    this.put(stamp);
+
+    assertNull(this.cache.get("key"));
+    assertEquals(0, this.cache.size());
+  }
+
+  @Test
+  public void devicesChangedWhileScoringDiscardsTheResult() {
+    long[] stamp = this.cache.stamp(this.plan);
+
+    this.cache.devicesChanged();
+    this.put(stamp);
+
+    assertNull(this.cache.get("key"));
+  }
+
+  private void put(long[] stamp) {
+    this.cache.put(
+        "key",
+        this.plan,
+        stamp,
+        new ScoreMap(),
+        false,
+        new ArrayList<String>()
+      );
+  }
+
+  private ScoringPlan planOf(String sensorType) {
+    ArrayNode functionHealth = JsonCodec.arrayNode();
+
+    functionHealth.addObject().put("sensor", sensorType).put("weight", 1);
+
+    return ScoringPlan.compile(functionHealth);
+  }
+}
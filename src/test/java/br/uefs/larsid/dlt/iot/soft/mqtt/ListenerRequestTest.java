@@ -0,0 +1,120 @@
+package br.uefs.larsid.dlt.iot.soft.mqtt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import br.uefs.larsid.dlt.iot.soft.model.RequestExecutor;
+import br.uefs.larsid.dlt.iot.soft.services.Controller;
+import br.uefs.larsid.dlt.iot.soft.utils.RequestDeadline;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.After;
+import org.junit.Test;
+
+public class ListenerRequestTest {
+
+  private static final String TOP_K = "TOP_K_HEALTH";
+
+  private final List<String> calls = new CopyOnWriteArrayList<String>();
+  private final List<String> published = new CopyOnWriteArrayList<String>();
+  private final RequestExecutor requestExecutor = new RequestExecutor(
+    "listener-test",
+    1,
+    10,
+    RequestExecutor.QueuePolicy.REJECT,
+    false
+  );
+  private final ListenerRequest listener = new ListenerRequest(
+    this.childController(),
+    new RecordingClient(),
+    new RecordingClient(),
+    null,
+    new ArrayList<String>(),
+    this.requestExecutor,
+    new String[] { TOP_K },
+    1,
+    false
+  );
+
+  @After
+  public void tearDown() {
+    this.requestExecutor.shutdown();
+  }
+
+  @Test
+  public void childDropsRequestWhoseParentDeadlineExpired() throws Exception {
+    this.receive(0);
+
+    assertFalse(this.calls.contains("loadConnectedDevices"));
+    assertTrue(this.published.isEmpty());
+  }
+
+  @Test
+  public void childAnswersRequestWithinTheParentDeadline() throws Exception {
+    this.receive(60000);
+
+    assertTrue(this.calls.contains("loadConnectedDevices"));
+    assertEquals(1, this.published.size());
+  }
+
+  private void receive(long remainingMillis) throws Exception {
+    String request = String.format(
+      "{\"id\":\"r1\",\"k\":1,\"functionHealth\":[]," + "\"%s\":%d}",
+      RequestDeadline.FIELD,
+      remainingMillis
+    );
+
+    this.listener.messageArrived(TOP_K, new MqttMessage(request.getBytes()));
+
+    /* Com uma única thread, a tarefa seguinte só roda após a requisição. */
+    CountDownLatch handled = new CountDownLatch(1);
+    this.requestExecutor.submit(handled::countDown, null);
+    assertTrue(handled.await(5, TimeUnit.SECONDS));
+  }
+
+  private Controller childController() {
+    return (Controller) Proxy.newProxyInstance(
+      Controller.class.getClassLoader(),
+      new Class<?>[] { Controller.class },
+      (proxy, method, args) -> {
+        this.calls.add(method.getName());
+
+        if (method.getReturnType() == boolean.class) {
+          return false;
+        }
+
+        if (method.getReturnType() == List.class) {
+          return Collections.emptyList();
+        }
+
+        return null;
+      }
+    );
+  }
+
+  private class RecordingClient extends MQTTClient {
+
+    @Override
+    public IMqttToken subscribe(
+      int qos,
+      IMqttMessageListener listener,
+      String... topics
+    ) {
+      return null;
+    }
+
+    @Override
+    public void publish(String topic, byte[] payload, int qos) {
+      published.add(topic);
+    }
+  }
+}
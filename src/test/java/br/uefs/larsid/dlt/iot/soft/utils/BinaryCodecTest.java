@@ -0,0 +1,181 @@
+package br.uefs.larsid.dlt.iot.soft.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class BinaryCodecTest {
+
+  private static final long REMAINING_MILLIS = 5000;
+
+  @Test
+  public void topKRequestRoundTrips() {
+    ArrayNode functionHealth = JsonCodec.arrayNode();
+    functionHealth.addObject().put("sensor", "temperature").put("weight", 2);
+    functionHealth.addObject().put("sensor", "humidity").put("weight", 1);
+
+    ObjectNode request = BinaryCodec.decodeTopKRequest(
+      BinaryCodec.encodeTopKRequest(
+        "request, 1",
+        10,
+        functionHealth,
+        RequestDeadline.NONE
+      )
+    );
+
+    assertEquals("request, 1", request.get("id").asText());
+    assertEquals(10, request.get("k").asInt());
+    assertEquals(functionHealth, request.get("functionHealth"));
+    assertNull(request.get(RequestDeadline.FIELD));
+    assertNull(request.get(RequestDeadline.BUDGET_FIELD));
+  }
+
+  @Test
+  public void topKRequestCarriesBothDeadlines() {
+    long now = System.currentTimeMillis();
+
+    ObjectNode request = BinaryCodec.decodeTopKRequest(
+      BinaryCodec.encodeTopKRequest(
+        "1",
+        3,
+        JsonCodec.arrayNode(),
+        now + REMAINING_MILLIS,
+        now + 2 * REMAINING_MILLIS
+      )
+    );
+
+    assertRemaining(
+      REMAINING_MILLIS,
+      request.get(RequestDeadline.FIELD).asLong()
+    );
+    assertRemaining(
+      2 * REMAINING_MILLIS,
+      request.get(RequestDeadline.BUDGET_FIELD).asLong()
+    );
+  }
+
+  @Test
+  public void topKRequestWithoutBudgetOmitsTheTrailingVarint() {
+    long now = System.currentTimeMillis();
+    byte[] withoutBudget = BinaryCodec.encodeTopKRequest(
+      "1",
+      3,
+      JsonCodec.arrayNode(),
+      now + REMAINING_MILLIS
+    );
+
+    ObjectNode request = BinaryCodec.decodeTopKRequest(withoutBudget);
+
+    assertRemaining(
+      REMAINING_MILLIS,
+      request.get(RequestDeadline.FIELD).asLong()
+    );
+    assertNull(request.get(RequestDeadline.BUDGET_FIELD));
+  }
+
+  @Test
+  public void scoresRoundTripInOrderWithNegativeValues() {
+    ScoreMap scores = new ScoreMap();
+    scores.put("device, 2", 23);
+    scores.put("device1", -14);
+    scores.put("device3", Integer.MIN_VALUE);
+    scores.put("device4", Integer.MAX_VALUE);
+
+    ScoreMap decoded = BinaryCodec.decodeScores(
+      BinaryCodec.encodeScores(scores)
+    );
+
+    assertEquals(scores.toString(), decoded.toString());
+  }
+
+  @Test
+  public void sensorsRequestRoundTrips() {
+    ObjectNode withoutDeadline = BinaryCodec.decodeSensorsRequest(
+      BinaryCodec.encodeSensorsRequest(RequestDeadline.NONE)
+    );
+    ObjectNode withDeadline = BinaryCodec.decodeSensorsRequest(
+      BinaryCodec.encodeSensorsRequest(
+        System.currentTimeMillis() + REMAINING_MILLIS
+      )
+    );
+
+    assertNull(withoutDeadline.get(RequestDeadline.FIELD));
+    assertRemaining(
+      REMAINING_MILLIS,
+      withDeadline.get(RequestDeadline.FIELD).asLong()
+    );
+  }
+
+  @Test
+  public void sensorsTypesRoundTrip() {
+    List<String> sensorsTypes = Arrays.asList("temperature", "air, humidity");
+
+    assertEquals(
+      sensorsTypes,
+      BinaryCodec.decodeSensorsTypes(
+        BinaryCodec.encodeSensorsTypes(sensorsTypes)
+      )
+    );
+  }
+
+  @Test
+  public void textRoundTrips() {
+    String text = "Request dropped, the deadline expired! ç";
+
+    assertEquals(text, BinaryCodec.decodeText(BinaryCodec.encodeText(text)));
+  }
+
+  @Test
+  public void wrongMagicOrVersionIsRejected() {
+    byte[] wrongMagic = BinaryCodec.encodeText("text");
+    byte[] wrongVersion = BinaryCodec.encodeText("text");
+    wrongMagic[0] = '{';
+    wrongVersion[1]++;
+
+    for (byte[] payload : new byte[][] { wrongMagic, wrongVersion }) {
+      assertFalse(BinaryCodec.isBinary(payload));
+
+      try {
+        BinaryCodec.decodeText(payload);
+        fail("Message accepted with a wrong header.");
+      } catch (IllegalArgumentException e) {
+        assertTrue(e.getMessage().contains("type"));
+      }
+    }
+  }
+
+  @Test
+  public void wrongMessageTypeIsRejected() {
+    try {
+      BinaryCodec.decodeScores(BinaryCodec.encodeText("text"));
+      fail("Text message decoded as scores.");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("type"));
+    }
+  }
+
+  @Test
+  public void truncatedMessageIsRejected() {
+    byte[] payload = BinaryCodec.encodeText("text");
+
+    try {
+      BinaryCodec.decodeText(Arrays.copyOf(payload, payload.length - 1));
+      fail("Truncated message accepted.");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("Malformed"));
+    }
+  }
+
+  /* O tempo restante é recalculado na codificação. */
+  private static void assertRemaining(long expected, long actual) {
+    assertTrue(actual <= expected && actual > expected - 1000);
+  }
+}
@@ -0,0 +1,65 @@
+package br.uefs.larsid.dlt.iot.soft.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class PayloadCompressionTest {
+
+  private static final int MAX_SIZE = 64 * 1024;
+
+  @Test
+  public void compressedPayloadRoundTrips() {
+    byte[] payload = new byte[10000];
+    Arrays.fill(payload, (byte) 'a');
+
+    for (PayloadCompression.Codec codec : new PayloadCompression.Codec[] {
+      PayloadCompression.Codec.DEFLATE,
+      PayloadCompression.Codec.GZIP,
+    }) {
+      byte[] compressed = PayloadCompression.compress(payload, codec, 0);
+
+      assertArrayEquals(
+        payload,
+        PayloadCompression.decompress(compressed, MAX_SIZE)
+      );
+    }
+  }
+
+  @Test
+  public void declaredSizeAboveTheLimitIsRejected() {
+    byte[] compressed = this.compress(new byte[MAX_SIZE + 1]);
+
+    this.assertRejected(compressed);
+  }
+
+  @Test
+  public void payloadLargerThanItsDeclaredSizeIsRejected() {
+    byte[] compressed = this.compress(new byte[MAX_SIZE]);
+
+    /* Cabeçalho informando 16 bytes para uma mensagem de 64 KB. */
+    compressed[2] = 0;
+    compressed[3] = 0;
+    compressed[4] = 0;
+    compressed[5] = 16;
+
+    this.assertRejected(compressed);
+  }
+
+  private byte[] compress(byte[] payload) {
+    return PayloadCompression.compress(
+      payload,
+      PayloadCompression.Codec.DEFLATE,
+      0
+    );
+  }
+
+  private void assertRejected(byte[] compressed) {
+    try {
+      PayloadCompression.decompress(compressed, MAX_SIZE);
+      fail("Expected the compressed payload to be rejected.");
+    } catch (IllegalArgumentException e) {}
+  }
+}
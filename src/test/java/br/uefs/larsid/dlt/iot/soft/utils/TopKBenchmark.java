@@ -0,0 +1,158 @@
+package br.uefs.larsid.dlt.iot.soft.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * Compara a seleção do Top-K por ordenação completa (implementação anterior
+ * do SortTopK) com a seleção por heap de tamanho k.
+ *
+ * Execução, após mvn test-compile:
+ * java -cp target/classes:target/test-classes \
+ *   br.uefs.larsid.dlt.iot.soft.utils.TopKBenchmark [dispositivos...]
+ */
+public class TopKBenchmark {
+
+  /*-------------------------Constantes---------------------------------------*/
+  private static final int[] DEFAULT_SIZES = { 1_000, 10_000, 100_000 };
+  private static final int[] KS = { 10, 100 };
+  private static final int WARMUP_ROUNDS = 20;
+  private static final int MEASURED_ROUNDS = 30;
+  private static final long SEED = 42;
+  /*--------------------------------------------------------------------------*/
+
+  /* Evita que o JIT descarte os resultados. */
+  private static long sink;
+
+  public static void main(String[] args) {
+    int[] sizes = args.length == 0
+      ? DEFAULT_SIZES
+      : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+    System.out.println(
+      String.format(
+        "%10s %5s %14s %14s %14s %8s",
+        "devices",
+        "k",
+        "sort (us)",
+        "heap map (us)",
+        "heap score (us)",
+        "speedup"
+      )
+    );
+
+    for (int n : sizes) {
+      Map<String, Integer> map = scores(n);
+      ScoreMap scoreMap = ScoreMap.fromMap(map);
+
+      for (int k : KS) {
+        check(map, scoreMap, k);
+
+        double sort = measure(() -> fullSort(map, k).size());
+        double heapMap = measure(
+          () -> SortTopK.sortTopK(map, k, false).size()
+        );
+        double heapScore = measure(
+          () -> SortTopK.sortTopK(scoreMap, k, false).size()
+        );
+
+        System.out.println(
+          String.format(
+            "%10d %5d %14.1f %14.1f %14.1f %7.1fx",
+            n,
+            k,
+            sort,
+            heapMap,
+            heapScore,
+            sort / heapScore
+          )
+        );
+      }
+    }
+
+    if (sink == 42) {
+      System.out.println();
+    }
+  }
+
+  /**
+   * Implementação anterior: ordena todos os scores e copia os k primeiros.
+   */
+  static Map<String, Integer> fullSort(Map<String, Integer> map, int k) {
+    Object[] sorted = map
+      .entrySet()
+      .stream()
+      .sorted(
+        Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+      )
+      .toArray();
+    Map<String, Integer> topK = new LinkedHashMap<String, Integer>();
+
+    for (int i = 0; i < Math.min(k, sorted.length); i++) {
+      @SuppressWarnings("unchecked")
+      Map.Entry<String, Integer> entry = (Map.Entry<String, Integer>) sorted[i];
+
+      topK.put(entry.getKey(), entry.getValue());
+    }
+
+    return topK;
+  }
+
+  /**
+   * Mediana do tempo (em microssegundos) de uma seleção.
+   */
+  private static double measure(IntSupplier selection) {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      sink += selection.getAsInt();
+    }
+
+    long[] times = new long[MEASURED_ROUNDS];
+
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      long start = System.nanoTime();
+
+      sink += selection.getAsInt();
+      times[i] = System.nanoTime() - start;
+    }
+
+    Arrays.sort(times);
+
+    return times[MEASURED_ROUNDS / 2] / 1000.0;
+  }
+
+  /**
+   * Verifica que as seleções retornam os mesmos scores, na mesma ordem.
+   */
+  private static void check(
+    Map<String, Integer> map,
+    ScoreMap scoreMap,
+    int k
+  ) {
+    Object[] expected = fullSort(map, k).values().toArray();
+    Object[] heap = SortTopK.sortTopK(map, k, false).values().toArray();
+    Object[] score = SortTopK
+      .sortTopK(scoreMap, k, false)
+      .toMap()
+      .values()
+      .toArray();
+
+    if (!Arrays.equals(expected, heap) || !Arrays.equals(expected, score)) {
+      throw new IllegalStateException("Top-K selections differ for k=" + k);
+    }
+  }
+
+  private static Map<String, Integer> scores(int n) {
+    Random random = new Random(SEED);
+    Map<String, Integer> map = new LinkedHashMap<String, Integer>();
+
+    for (int i = 0; i < n; i++) {
+      map.put("device" + i, random.nextInt(100_000));
+    }
+
+    return map;
+  }
+}
@@ -0,0 +1,91 @@
+package br.uefs.larsid.dlt.iot.soft.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class TopKHeapTest {
+
+  @Test
+  public void mergingTheSameMapTwiceKeepsDistinctDevices() {
+    Map<String, Integer> scores = new LinkedHashMap<String, Integer>();
+    scores.put("a", 50);
+    scores.put("b", 40);
+    scores.put("c", 30);
+    scores.put("d", 20);
+
+    TopKHeap heap = new TopKHeap(3);
+    heap.offerAll(scores);
+    heap.offerAll(scores);
+
+    assertEquals(3, heap.size());
+    assertEquals(
+      Arrays.asList("a", "b", "c"),
+      Arrays.asList(heap.toSortedMap().keySet().toArray())
+    );
+  }
+
+  @Test
+  public void betterScoreReplacesTheDeviceEntry() {
+    TopKHeap heap = new TopKHeap(2);
+    heap.offer("a", 10);
+    heap.offer("b", 20);
+    heap.offer("a", 30);
+    heap.offer("b", 5);
+
+    Map<String, Integer> topK = heap.toSortedMap();
+
+    assertEquals(2, heap.size());
+    assertEquals(Integer.valueOf(30), topK.get("a"));
+    assertEquals(Integer.valueOf(20), topK.get("b"));
+  }
+
+  @Test
+  public void repeatedOffersAndEvictionsKeepTheBestScores() {
+    Random random = new Random(7);
+    Map<String, Integer> best = new HashMap<String, Integer>();
+    TopKHeap heap = new TopKHeap(10);
+
+    for (int i = 0; i < 5000; i++) {
+      String deviceId = "device" + random.nextInt(200);
+      int score = random.nextInt(1000) - 500;
+
+      heap.offer(deviceId, score);
+      best.merge(deviceId, score, Math::max);
+    }
+
+    List<Map.Entry<String, Integer>> expected = new ArrayList<Map.Entry<String, Integer>>(
+      best.entrySet()
+    );
+    expected.sort(TopKHeap.BEST_FIRST);
+
+    assertEquals(
+      expected.subList(0, 10).toString(),
+      heap.toScoreMap().toMap().entrySet().toString()
+    );
+  }
+
+  @Test
+  public void mergedHeapsKeepTheBestOfBoth() {
+    TopKHeap left = new TopKHeap(2);
+    left.offer("a", 10);
+    left.offer("b", 40);
+
+    TopKHeap right = new TopKHeap(2);
+    right.offer("c", 30);
+    right.offer("a", 50);
+
+    TopKHeap merged = new TopKHeap(3);
+    merged.merge(left);
+    merged.merge(right);
+
+    assertEquals("{a=50, b=40, c=30}", merged.toScoreMap().toString());
+  }
+}